@@ -2,8 +2,10 @@ package dev.bhargav.security;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class SecurityApplication {
 
 	public static void main(String[] args) {
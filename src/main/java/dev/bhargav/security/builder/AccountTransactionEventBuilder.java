@@ -1,59 +1,55 @@
 package dev.bhargav.security.builder;
 
 import dev.bhargav.security.constant.AccountConstants;
-import dev.bhargav.security.model.Transaction;
+import dev.bhargav.security.entity.Account;
+import dev.bhargav.security.entity.AccountTransaction;
 
 import java.time.LocalDateTime;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
 
 /**
- * Creates different events for an account.
+ * Creates different events for an account. The account passed in has already been updated, each event takes the
+ * sequence number Account.lastSequence was advanced to.
  */
 public class AccountTransactionEventBuilder {
 
-    public static List<Transaction> createAccountSuccessfulEvent() {
-        return Collections.singletonList(Transaction.builder()
+    public static AccountTransaction createAccountSuccessfulEvent(Account account) {
+        return AccountTransaction.builder()
+                .accNo(account.getAccNo())
+                .sequence(account.getLastSequence())
                 .type(AccountConstants.EVENT_CREATE_ACCOUNT.getMessage())
-                .ts(LocalDateTime.now().toString())
+                .ts(LocalDateTime.now())
                 .balance(0L)
-                .build());
+                .build();
     }
 
-    public static List<Transaction> updateAccountSuccessfulEvent(List<Transaction> existingTransactions) {
-        existingTransactions.sort(Comparator.comparing(Transaction::getTs).reversed());
-        Transaction accountUpdateNewEvent = Transaction.builder()
+    public static AccountTransaction updateAccountSuccessfulEvent(Account account) {
+        return AccountTransaction.builder()
+                .accNo(account.getAccNo())
+                .sequence(account.getLastSequence())
                 .type(AccountConstants.EVENT_ACCOUNT_UPDATE.getMessage())
-                .ts(LocalDateTime.now().toString())
+                .ts(LocalDateTime.now())
                 .build();
-        existingTransactions.add(accountUpdateNewEvent);
-        return existingTransactions;
     }
 
-    public static List<Transaction> createDepositSuccessfulEvent(List<Transaction> existingTransactions, Integer deposit) {
-        existingTransactions.sort(Comparator.comparing(Transaction::getTs).reversed());
-        Long newBalance = ((existingTransactions.get(0).getBalance() != null) ? existingTransactions.get(0).getBalance() : 0L) + deposit;
-        Transaction depositNewEvent = Transaction.builder()
+    public static AccountTransaction createDepositSuccessfulEvent(Account account, Integer deposit) {
+        return AccountTransaction.builder()
+                .accNo(account.getAccNo())
+                .sequence(account.getLastSequence())
                 .type(AccountConstants.EVENT_DEPOSIT.getMessage())
-                .ts(LocalDateTime.now().toString())
-                .balance(newBalance)
+                .ts(LocalDateTime.now())
+                .balance(account.getBalance())
                 .transactionAmt(Long.valueOf(deposit))
                 .build();
-        existingTransactions.add(depositNewEvent);
-        return existingTransactions;
     }
 
-    public static List<Transaction> createWithdrawalSuccessfulEvent(List<Transaction> existingTransactions, Integer withdrawal) {
-        existingTransactions.sort(Comparator.comparing(Transaction::getTs).reversed());
-        Long newBalance = ((existingTransactions.get(0).getBalance() != null) ? existingTransactions.get(0).getBalance() : 0L) - withdrawal;
-        Transaction depositCurrentEvent = Transaction.builder()
+    public static AccountTransaction createWithdrawalSuccessfulEvent(Account account, Integer withdrawal) {
+        return AccountTransaction.builder()
+                .accNo(account.getAccNo())
+                .sequence(account.getLastSequence())
                 .type(AccountConstants.EVENT_WITHDRAWAL.getMessage())
-                .ts(LocalDateTime.now().toString())
-                .balance(newBalance)
+                .ts(LocalDateTime.now())
+                .balance(account.getBalance())
                 .transactionAmt(Long.valueOf(withdrawal))
                 .build();
-        existingTransactions.add(depositCurrentEvent);
-        return existingTransactions;
     }
 }
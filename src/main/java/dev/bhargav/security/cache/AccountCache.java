@@ -0,0 +1,114 @@
+package dev.bhargav.security.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.bhargav.security.entity.Account;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of account snapshots keyed by account number, without their transactions. Unknown accounts are not
+ * cached. The writers of this node put the new snapshot once their transaction has committed, a snapshot older than
+ * the cached one (lower 'lastSequence') is ignored so that commits finishing out of order cannot roll the entry back.
+ * Changes made by other nodes are only seen once the entry expires, after 'account.cache.max-staleness-seconds'.
+ * <p>
+ * Cached snapshots are shared between callers and must not be modified.
+ */
+@Component
+public class AccountCache {
+
+    private final Cache<Integer, Account> cache;
+
+    public AccountCache(@Value("${account.cache.maximum-size}") long maximumSize,
+                        @Value("${account.cache.max-staleness-seconds}") long maxStalenessSeconds,
+                        MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(maxStalenessSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, this.cache, "account");
+    }
+
+    /**
+     * Returns the cached account or loads it.
+     *
+     * @param accNo  - Integer - Account number
+     * @param loader - Function - loads the account by account number, returns null if not found
+     * @return Account, null if not found
+     */
+    public Account get(Integer accNo, Function<Integer, Account> loader) {
+        return this.cache.get(accNo, key -> {
+            Account account = loader.apply(key);
+            return account != null ? snapshot(account) : null;
+        });
+    }
+
+    /**
+     * Returns the cached accounts among the given account numbers, without loading the others.
+     *
+     * @param accNos - Iterable - Account numbers
+     * @return cached accounts by account number
+     */
+    public Map<Integer, Account> getAllPresent(Iterable<Integer> accNos) {
+        return this.cache.getAllPresent(accNos);
+    }
+
+    /**
+     * Caches a copy of the account, taken now, once the current transaction commits. Nothing is cached on rollback.
+     *
+     * @param account - Account - Account as written by the current transaction
+     */
+    public void putAfterCommit(Account account) {
+        Account snapshot = snapshot(account);
+        afterCommit(() -> this.cache.asMap().merge(snapshot.getAccNo(), snapshot, (cached, updated) ->
+                cached.getLastSequence() != null && updated.getLastSequence() != null
+                        && cached.getLastSequence() > updated.getLastSequence() ? cached : updated));
+    }
+
+    /**
+     * Drops the cached account once the current transaction commits.
+     *
+     * @param accNo - Integer - Account number
+     */
+    public void invalidateAfterCommit(Integer accNo) {
+        afterCommit(() -> this.cache.invalidate(accNo));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static Account snapshot(Account account) {
+        return Account.builder()
+                .id(account.getId())
+                .accNo(account.getAccNo())
+                .holderName(account.getHolderName())
+                .startDate(account.getStartDate())
+                .branch(account.getBranch())
+                .balance(account.getBalance())
+                .lastSequence(account.getLastSequence())
+                .createdBy(account.getCreatedBy())
+                .modifiedBy(account.getModifiedBy())
+                .createdDate(account.getCreatedDate())
+                .modifiedDate(account.getModifiedDate())
+                .build();
+    }
+}
@@ -0,0 +1,86 @@
+package dev.bhargav.security.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free Bloom filter of (namespace, value) string pairs. It never returns a false negative, false positives
+ * happen at roughly the configured rate as long as the number of entries stays below the expected insertions.
+ * Entries cannot be removed, the owner rebuilds the filter instead.
+ */
+public class BloomFilter {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final AtomicLongArray bits;
+
+    private final long bitCount;
+
+    private final int hashCount;
+
+    /**
+     * @param expectedInsertions - long - Number of entries the filter is sized for
+     * @param falsePositiveRate  - double - Target false positive probability, e.g. 0.01
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long insertions = Math.max(1L, expectedInsertions);
+        long optimalBits = (long) Math.ceil(-insertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.max(1L, (optimalBits + Long.SIZE - 1) / Long.SIZE);
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words * Long.SIZE;
+        this.hashCount = (int) Math.max(1L, Math.round((double) this.bitCount / insertions * Math.log(2)));
+    }
+
+    public void put(String namespace, String value) {
+        long hash = hash(namespace, value);
+        long hash1 = hash;
+        long hash2 = mix(hash ^ FNV_PRIME);
+        for (int i = 0; i < this.hashCount; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, this.bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = this.bits.get(word);
+            while ((current & mask) == 0 && !this.bits.compareAndSet(word, current, current | mask)) {
+                current = this.bits.get(word);
+            }
+        }
+    }
+
+    public boolean mightContain(String namespace, String value) {
+        long hash = hash(namespace, value);
+        long hash1 = hash;
+        long hash2 = mix(hash ^ FNV_PRIME);
+        for (int i = 0; i < this.hashCount; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, this.bitCount);
+            if ((this.bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * FNV-1a over both strings (separated by a zero char) finished with the MurmurHash3 64-bit mix.
+     */
+    private static long hash(String namespace, String value) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < namespace.length(); i++) {
+            hash = (hash ^ namespace.charAt(i)) * FNV_PRIME;
+        }
+        hash *= FNV_PRIME;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
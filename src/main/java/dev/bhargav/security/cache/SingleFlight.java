@@ -0,0 +1,85 @@
+package dev.bhargav.security.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Coalesces concurrent loads of the same key. The first caller runs the load, the callers arriving while it is in
+ * flight wait for it and get the same result, or the same exception. Nothing is kept once the load completes, so a
+ * caller never gets a result whose load started before the previous one had finished.
+ *
+ * @param <K> - key type
+ * @param <V> - result type, shared between the callers and therefore not to be modified
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter loaded;
+
+    private final Counter coalesced;
+
+    /**
+     * @param name          - String - Name tag of the 'single-flight.requests' counters
+     * @param meterRegistry - MeterRegistry - Registry of the counters
+     */
+    public SingleFlight(String name, MeterRegistry meterRegistry) {
+        this.loaded = Counter.builder("single-flight.requests")
+                .description("Requests which ran their own load")
+                .tag("name", name).tag("outcome", "loaded")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("single-flight.requests")
+                .description("Requests which shared a load already in flight")
+                .tag("name", name).tag("outcome", "coalesced")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the loader, or waits for the load of the same key which is already in flight.
+     *
+     * @param key    - K - Key of the load
+     * @param loader - Callable - Load to run when none is in flight
+     * @return result of the load
+     * @throws Exception - the exception of the load
+     */
+    public V execute(K key, Callable<V> loader) throws Exception {
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> existing = this.inFlight.putIfAbsent(key, load);
+        if (existing != null) {
+            this.coalesced.increment();
+            return await(existing);
+        }
+        this.loaded.increment();
+        try {
+            V result = loader.call();
+            load.complete(result);
+            return result;
+        } catch (Exception | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            this.inFlight.remove(key, load);
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> load) throws Exception {
+        try {
+            return load.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a coalesced load", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception exception) {
+                throw exception;
+            }
+            throw (Error) cause;
+        }
+    }
+}
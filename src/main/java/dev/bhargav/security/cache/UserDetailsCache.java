@@ -0,0 +1,85 @@
+package dev.bhargav.security.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.bhargav.security.entity.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Bounded, expiring cache of User principals keyed by the normalized (trimmed, lower case) username. Unknown users
+ * are not cached. Entries are invalidated by UserManagementService whenever a user is registered, deleted or gets a
+ * new password hash, on this node only: other nodes keep their entry until it expires after
+ * 'auth.user-cache.ttl-seconds', which is why TokenService checks that the user still exists before issuing tokens.
+ */
+@Component
+public class UserDetailsCache {
+
+    private final Cache<String, User> cache;
+
+    public UserDetailsCache(@Value("${auth.user-cache.maximum-size}") long maximumSize,
+                            @Value("${auth.user-cache.ttl-seconds}") long ttlSeconds,
+                            MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, this.cache, "auth.user");
+    }
+
+    /**
+     * Returns the cached user or loads it.
+     *
+     * @param username - String - Username
+     * @param loader   - Function - loads the user by username, returns null if not found
+     * @return User, null if not found
+     */
+    public User get(String username, Function<String, User> loader) {
+        return this.cache.get(normalize(username), key -> loader.apply(username));
+    }
+
+    /**
+     * Drops the cached user.
+     *
+     * @param username - String - Username
+     */
+    public void invalidate(String username) {
+        this.cache.invalidate(normalize(username));
+    }
+
+    /**
+     * Drops the cached user once the current transaction commits, so that a concurrent load cannot cache the user
+     * again from the not yet committed state.
+     *
+     * @param username - String - Username
+     */
+    public void invalidateAfterCommit(String username) {
+        afterCommit(() -> invalidate(username));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static String normalize(String username) {
+        return username.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,131 @@
+package dev.bhargav.security.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Short-lived cache of successfully verified Basic Auth credentials. For every username it keeps a keyed HMAC of
+ * (username, presented password, stored hash), never the password itself. The HMAC key is random per process, so a
+ * cached entry is useless outside this JVM. A presented password matches only when its HMAC equals the cached one,
+ * anything else falls back to the full PasswordEncoder check.
+ * <p>
+ * Entries are dropped on the node which deletes the user only. With several nodes the cache must stay disabled, or
+ * 'auth.credential-cache.ttl-seconds' be kept short, since the other nodes accept the old credentials until their
+ * entry expires.
+ */
+@Component
+public class VerifiedCredentialCache {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final boolean enabled;
+
+    private final Cache<String, byte[]> cache;
+
+    private final SecretKeySpec hmacKey;
+
+    public VerifiedCredentialCache(@Value("${auth.credential-cache.enabled}") boolean enabled,
+                                   @Value("${auth.credential-cache.maximum-size}") long maximumSize,
+                                   @Value("${auth.credential-cache.ttl-seconds}") long ttlSeconds,
+                                   MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        this.hmacKey = new SecretKeySpec(secret, HMAC_ALGORITHM);
+        CaffeineCacheMetrics.monitor(meterRegistry, this.cache, "auth.credential");
+    }
+
+    /**
+     * Checks whether the presented password has been verified recently against the same stored hash.
+     *
+     * @param username        - String - Username
+     * @param rawPassword     - CharSequence - Presented password
+     * @param encodedPassword - String - Stored password hash
+     * @return true if the credentials have been verified before and the entry is still alive
+     */
+    public boolean isVerified(String username, CharSequence rawPassword, String encodedPassword) {
+        if (!this.enabled) {
+            return false;
+        }
+        byte[] verified = this.cache.getIfPresent(normalize(username));
+        return verified != null && MessageDigest.isEqual(verified, hmac(username, rawPassword, encodedPassword));
+    }
+
+    /**
+     * Remembers credentials which have just passed the PasswordEncoder check.
+     *
+     * @param username        - String - Username
+     * @param rawPassword     - CharSequence - Presented password
+     * @param encodedPassword - String - Stored password hash
+     */
+    public void put(String username, CharSequence rawPassword, String encodedPassword) {
+        if (this.enabled) {
+            this.cache.put(normalize(username), hmac(username, rawPassword, encodedPassword));
+        }
+    }
+
+    /**
+     * Drops the verified credentials of the given user.
+     *
+     * @param username - String - Username
+     */
+    public void invalidate(String username) {
+        this.cache.invalidate(normalize(username));
+    }
+
+    /**
+     * Drops the verified credentials of the given user once the current transaction commits.
+     *
+     * @param username - String - Username
+     */
+    public void invalidateAfterCommit(String username) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(username);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(username);
+            }
+        });
+    }
+
+    private byte[] hmac(String username, CharSequence rawPassword, String encodedPassword) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(this.hmacKey);
+            mac.update(normalize(username).getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            mac.update(rawPassword.toString().getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return mac.doFinal(encodedPassword.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String normalize(String username) {
+        return username.trim().toLowerCase(Locale.ROOT);
+    }
+}
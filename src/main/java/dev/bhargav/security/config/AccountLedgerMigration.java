@@ -0,0 +1,167 @@
+package dev.bhargav.security.config;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.bhargav.security.model.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * One-off move of the account histories from the legacy 'transactions' JSON column of the account table into the
+ * account_transaction ledger. Accounts still to be migrated have no 'last_sequence'. They are migrated in the
+ * background once the application is ready, by a thread of their own and one transaction per account, and
+ * AccountService migrates an account on demand when it is touched before that. An account failing to migrate is
+ * logged and left to the on-demand migration. A migrated account gets its 'transactions' column cleared, so the
+ * migration is idempotent and the column can be dropped once no account is left with a null 'last_sequence'.
+ */
+@Component
+public class AccountLedgerMigration implements ApplicationListener<ApplicationReadyEvent>, DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AccountLedgerMigration.class);
+
+    private static final LocalDateTime UNKNOWN_TS = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Value("${account.ledger.migration.enabled}")
+    private boolean enabled;
+
+    private volatile Boolean legacyColumnExists;
+
+    private boolean alreadyMigrated = false;
+
+    private volatile boolean running = true;
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (!this.enabled || this.alreadyMigrated) {
+            return;
+        }
+        this.alreadyMigrated = true;
+        Thread migration = new Thread(this::migrateAll, "account-ledger-migration");
+        migration.setDaemon(true);
+        migration.start();
+    }
+
+    @Override
+    public void destroy() {
+        this.running = false;
+    }
+
+    private void migrateAll() {
+        List<Integer> accountNumbers = this.jdbcTemplate.queryForList(
+                "select acc_no from account where last_sequence is null", Integer.class);
+        int migrated = 0;
+        for (Integer accNo : accountNumbers) {
+            if (!this.running) {
+                break;
+            }
+            try {
+                migrate(accNo);
+                migrated++;
+            } catch (RuntimeException e) {
+                LOG.warn("Could not move the transactions of account {} into the account_transaction ledger", accNo, e);
+            }
+        }
+        if (migrated > 0) {
+            LOG.info("Moved the transactions of {} accounts into the account_transaction ledger", migrated);
+        }
+    }
+
+    /**
+     * Moves the JSON history of the account into the ledger unless that has been done already. Joins the current
+     * transaction if there is one.
+     *
+     * @param accNo - Integer - Account number
+     * @return sequence number of the latest event of the account, null if the account does not exist
+     */
+    public Long migrate(Integer accNo) {
+        return this.transactionTemplate.execute(status -> {
+            List<Long> lastSequence = this.jdbcTemplate.queryForList(
+                    "select last_sequence from account where acc_no = ? for update", Long.class, accNo);
+            if (lastSequence.isEmpty() || lastSequence.get(0) != null) {
+                return lastSequence.isEmpty() ? null : lastSequence.get(0);
+            }
+            List<LegacyEvent> events = legacyEvents(accNo);
+            List<Object[]> rows = new ArrayList<>(events.size());
+            long sequence = 0L;
+            for (LegacyEvent event : events) {
+                Transaction transaction = event.transaction();
+                rows.add(new Object[]{accNo, ++sequence, transaction.getType(), Timestamp.valueOf(event.ts()),
+                        transaction.getTransactionAmt(), transaction.getBalance(), transaction.getError()});
+            }
+            this.jdbcTemplate.batchUpdate("insert into account_transaction "
+                    + "(acc_no, sequence, type, ts, transaction_amt, balance, error) "
+                    + "values (?, ?, ?, ?, ?, ?, ?)", rows);
+            if (hasLegacyColumn()) {
+                this.jdbcTemplate.update("update account set last_sequence = ?, transactions = null where acc_no = ?",
+                        sequence, accNo);
+            } else {
+                this.jdbcTemplate.update("update account set last_sequence = ? where acc_no = ?", sequence, accNo);
+            }
+            return sequence;
+        });
+    }
+
+    /**
+     * Reads the legacy JSON history in chronological order. The timestamps are parsed once and compared as
+     * LocalDateTime, the ISO strings do not sort correctly when their fraction of second has a different length.
+     * The sort is stable, so events of the same instant keep their stored order.
+     */
+    private List<LegacyEvent> legacyEvents(Integer accNo) {
+        if (!hasLegacyColumn()) {
+            return List.of();
+        }
+        List<String> json = this.jdbcTemplate.queryForList(
+                "select transactions from account where acc_no = ?", String.class, accNo);
+        if (json.isEmpty() || json.get(0) == null) {
+            return List.of();
+        }
+        try {
+            List<Transaction> transactions = this.objectMapper.readValue(json.get(0),
+                    new TypeReference<List<Transaction>>() {
+                    });
+            List<LegacyEvent> events = new ArrayList<>(transactions.size());
+            transactions.forEach(transaction -> events.add(new LegacyEvent(
+                    transaction.getTs() != null ? LocalDateTime.parse(transaction.getTs()) : UNKNOWN_TS, transaction)));
+            events.sort(Comparator.comparing(LegacyEvent::ts));
+            return events;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable transactions of account " + accNo, e);
+        }
+    }
+
+    private boolean hasLegacyColumn() {
+        if (this.legacyColumnExists == null) {
+            this.legacyColumnExists = this.jdbcTemplate.queryForObject("select count(*) "
+                    + "from information_schema.columns where table_schema = database() and table_name = 'account' "
+                    + "and column_name = 'transactions'", Integer.class) > 0;
+        }
+        return this.legacyColumnExists;
+    }
+
+    private record LegacyEvent(LocalDateTime ts, Transaction transaction) {
+    }
+}
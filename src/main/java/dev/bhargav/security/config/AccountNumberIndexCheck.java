@@ -0,0 +1,50 @@
+package dev.bhargav.security.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Reports the account numbers held by several accounts. Hibernate creates the 'uk_account_acc_no' unique index on
+ * startup, but only logs a warning and goes on without it when duplicate numbers, left by the former random
+ * generator, are in the way. When the index is missing at startup, the duplicates are listed in an error log so that
+ * they can be resolved; the index is created on the next start once they are gone.
+ */
+@Component
+public class AccountNumberIndexCheck implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AccountNumberIndexCheck.class);
+
+    private static final String INDEX_NAME = "uk_account_acc_no";
+
+    private static final int MAX_REPORTED = 100;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        Integer indexes = this.jdbcTemplate.queryForObject("select count(*) from information_schema.statistics "
+                + "where table_schema = database() and table_name = 'account' and index_name = ?",
+                Integer.class, INDEX_NAME);
+        if (indexes != null && indexes > 0) {
+            return;
+        }
+        List<String> duplicates = this.jdbcTemplate.query("select acc_no, count(*) from account group by acc_no "
+                        + "having count(*) > 1 order by acc_no limit " + MAX_REPORTED,
+                (resultSet, rowNum) -> resultSet.getInt(1) + " (" + resultSet.getInt(2) + " accounts)");
+        if (duplicates.isEmpty()) {
+            LOG.warn("Unique index {} on account.acc_no is missing although no account number is duplicated",
+                    INDEX_NAME);
+            return;
+        }
+        LOG.error("Unique index {} on account.acc_no cannot be created, account numbers held by several accounts "
+                + "(first {}): {}", INDEX_NAME, MAX_REPORTED, String.join(", ", duplicates));
+    }
+}
@@ -0,0 +1,48 @@
+package dev.bhargav.security.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * Picks the BCrypt strength (log2 of the rounds) fitting a per-hash latency budget on the current machine. Every
+ * strength step doubles the work, so a single timed hash at the minimum strength is enough to estimate the others.
+ */
+public final class BCryptStrengthCalibrator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BCryptStrengthCalibrator.class);
+
+    private static final int SAMPLES = 3;
+
+    private static final String SAMPLE_PASSWORD = "calibration-password";
+
+    private BCryptStrengthCalibrator() {
+    }
+
+    /**
+     * @param targetMillis - long - Time budget of a single hash in milliseconds
+     * @param minStrength  - int - Lowest acceptable strength, used even if it exceeds the budget
+     * @param maxStrength  - int - Highest strength to consider
+     * @return the highest strength between min and max whose estimated hash time fits the budget
+     */
+    public static int calibrate(long targetMillis, int minStrength, int maxStrength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(minStrength);
+        // warm-up so that the measurement does not include the JIT compilation
+        encoder.encode(SAMPLE_PASSWORD);
+        long fastest = Long.MAX_VALUE;
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            encoder.encode(SAMPLE_PASSWORD);
+            fastest = Math.min(fastest, System.nanoTime() - start);
+        }
+        double estimatedMillis = fastest / 1_000_000.0;
+        int strength = minStrength;
+        while (strength < maxStrength && estimatedMillis * 2 <= targetMillis) {
+            estimatedMillis *= 2;
+            strength++;
+        }
+        LOG.info("BCrypt strength {} selected, estimated {} ms per hash (budget {} ms)", strength,
+                Math.round(estimatedMillis), targetMillis);
+        return strength;
+    }
+}
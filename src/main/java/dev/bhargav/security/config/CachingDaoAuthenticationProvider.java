@@ -0,0 +1,32 @@
+package dev.bhargav.security.config;
+
+import dev.bhargav.security.cache.VerifiedCredentialCache;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.userdetails.UserDetails;
+
+/**
+ * DaoAuthenticationProvider which consults the VerifiedCredentialCache before running the PasswordEncoder, so that
+ * clients fetching tokens repeatedly with the same credentials do not pay a full BCrypt check every time.
+ */
+public class CachingDaoAuthenticationProvider extends DaoAuthenticationProvider {
+
+    private final VerifiedCredentialCache verifiedCredentialCache;
+
+    public CachingDaoAuthenticationProvider(VerifiedCredentialCache verifiedCredentialCache) {
+        this.verifiedCredentialCache = verifiedCredentialCache;
+    }
+
+    @Override
+    protected void additionalAuthenticationChecks(UserDetails userDetails,
+                                                  UsernamePasswordAuthenticationToken authentication) throws AuthenticationException {
+        Object credentials = authentication.getCredentials();
+        if (credentials != null && this.verifiedCredentialCache.isVerified(userDetails.getUsername(),
+                credentials.toString(), userDetails.getPassword())) {
+            return;
+        }
+        super.additionalAuthenticationChecks(userDetails, authentication);
+        this.verifiedCredentialCache.put(userDetails.getUsername(), credentials.toString(), userDetails.getPassword());
+    }
+}
@@ -0,0 +1,86 @@
+package dev.bhargav.security.config;
+
+import dev.bhargav.security.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrency cap of the password hashing. The hashes run on a dedicated, CPU-sized thread pool with a bounded queue,
+ * while the request thread waits for the result: at most one hash per pool thread runs at a time, and at most
+ * 'auth.hashing.queue-capacity' request threads wait for one. Beyond that the work is rejected with
+ * TooManyRequestsException (HTTP 429) instead of piling up, so a burst of signups holds a bounded number of request
+ * threads rather than all of them. Pool saturation is exported as 'auth.hashing' executor metrics.
+ */
+@Component
+public class PasswordHashingExecutor implements DisposableBean {
+
+    private final PasswordEncoder passwordEncoder;
+
+    private final ThreadPoolExecutor executor;
+
+    private final long retryAfterSeconds;
+
+    private final Counter rejected;
+
+    public PasswordHashingExecutor(PasswordEncoder passwordEncoder,
+                                   @Value("${auth.hashing.threads}") int threads,
+                                   @Value("${auth.hashing.queue-capacity}") int queueCapacity,
+                                   @Value("${auth.hashing.retry-after-seconds}") long retryAfterSeconds,
+                                   MeterRegistry meterRegistry) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.passwordEncoder = passwordEncoder;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("password-hashing-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        new ExecutorServiceMetrics(this.executor, "auth.hashing", Tags.empty()).bindTo(meterRegistry);
+        this.rejected = Counter.builder("auth.hashing.rejected")
+                .description("Password hashing requests rejected because the hashing queue was full")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Encodes the password on the hashing pool and waits for the result, blocking the calling thread.
+     *
+     * @param rawPassword - CharSequence - Password to be encoded
+     * @return encoded password
+     * @throws TooManyRequestsException if the hashing queue is full
+     */
+    public String encode(CharSequence rawPassword) throws TooManyRequestsException {
+        Future<String> encodedPassword;
+        try {
+            encodedPassword = this.executor.submit(() -> this.passwordEncoder.encode(rawPassword));
+        } catch (RejectedExecutionException e) {
+            this.rejected.increment();
+            throw new TooManyRequestsException("Too many requests, please retry later", this.retryAfterSeconds);
+        }
+        try {
+            return encodedPassword.get();
+        } catch (InterruptedException e) {
+            encodedPassword.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the password hashing", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        this.executor.shutdown();
+    }
+}
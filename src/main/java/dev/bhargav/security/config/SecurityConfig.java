@@ -1,20 +1,30 @@
 package dev.bhargav.security.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.bhargav.security.cache.VerifiedCredentialCache;
+import dev.bhargav.security.jwt.CachingJwtDecoder;
+import dev.bhargav.security.jwt.JwkJwtEncoder;
+import dev.bhargav.security.jwt.JwkJwtProcessor;
+import dev.bhargav.security.jwt.JwkLoader;
+import dev.bhargav.security.jwt.JwtKeyStore;
+import dev.bhargav.security.jwt.JwtSigningAlgorithm;
+import dev.bhargav.security.jwt.RevocationCheckingJwtDecoder;
+import dev.bhargav.security.jwt.ScopeAuthoritiesConverter;
+import dev.bhargav.security.ratelimit.RateLimitFilter;
+import dev.bhargav.security.ratelimit.RateLimiter;
+import dev.bhargav.security.service.TokenRevocationService;
 import dev.bhargav.security.service.UserDetailsService;
-import com.nimbusds.jose.jwk.JWK;
-import com.nimbusds.jose.jwk.JWKSet;
-import com.nimbusds.jose.jwk.RSAKey;
-import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
-import com.nimbusds.jose.jwk.source.JWKSource;
-import com.nimbusds.jose.proc.SecurityContext;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.annotation.Order;
+import org.springframework.core.io.Resource;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
-import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -22,18 +32,21 @@ import org.springframework.security.config.annotation.web.configurers.AbstractHt
 import org.springframework.security.config.annotation.web.configurers.CsrfConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.JwtEncoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
-import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
 import org.springframework.security.oauth2.server.resource.web.BearerTokenAuthenticationEntryPoint;
 import org.springframework.security.oauth2.server.resource.web.access.BearerTokenAccessDeniedHandler;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 import org.springframework.security.web.header.writers.XXssProtectionHeaderWriter;
 
-import java.security.interfaces.RSAPrivateKey;
-import java.security.interfaces.RSAPublicKey;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
 
 @EnableWebSecurity
 @Configuration
@@ -45,12 +58,18 @@ public class SecurityConfig {
     public static final String[] PUBLIC_PATHS = {
             "/health",
             "/api/auth/signup",
+            "/api/auth/refresh",
             "/v3/api-docs.yaml",
             "/v3/api-docs/**",
             "/swagger-ui/**",
             "/swagger-ui/index.html"
     };
 
+    /**
+     * Clock skew tolerated on 'exp' by the default JwtTimestampValidator of the NimbusJwtDecoder.
+     */
+    private static final Duration JWT_CLOCK_SKEW = Duration.ofSeconds(60);
+
     /**
      * UserDetailsService extends org.springframework.security.core.userdetails.UserDetailsService.
      * UserDetailsService is a core interface that loads user-specific data. It is used throughout the framework as a
@@ -66,33 +85,117 @@ public class SecurityConfig {
     AuthenticationEntryPoint authenticationEntryPoint;
 
     /**
-     * RSA Public Key
+     * Cache of recently verified Basic Auth credentials consulted by the DaoAuthenticationProvider.
+     */
+    @Autowired
+    VerifiedCredentialCache verifiedCredentialCache;
+
+    /**
+     * Per-client token buckets of /api/auth/token and /api/auth/signup.
+     */
+    @Autowired
+    RateLimiter rateLimiter;
+
+    /**
+     * Serializes the ExceptionResponse of the requests rejected by RateLimitFilter.
+     */
+    @Autowired
+    ObjectMapper objectMapper;
+
+    /**
+     * JWS algorithm of the access tokens: RS256, ES256, EdDSA or HS256
+     */
+    @Value("${jwt.signing.algorithm}")
+    String signingAlgorithm;
+
+    /**
+     * Public Key (PEM) matching the signing algorithm
      */
     @Value("${jwt.public.key}")
-    RSAPublicKey key;
+    Resource publicKey;
 
     /**
-     * RSA Private Key
+     * Private Key (PEM) matching the signing algorithm
      */
     @Value("${jwt.private.key}")
-    RSAPrivateKey privateKey;
+    Resource privateKey;
+
+    /**
+     * Shared secret for HS256, meant for trusted service-to-service traffic only
+     */
+    @Value("${jwt.hmac.secret:}")
+    String hmacSecret;
+
+    /**
+     * Directory of hot-reloadable JWT keys, the keys above are used when not set
+     */
+    @Value("${jwt.keys.directory:}")
+    String keysDirectory;
 
     /**
-     * DaoAuthenticationProvider extends AbstractUserDetailsAuthenticationProvider
+     * How long keys removed from the key directory keep verifying tokens, 0 for the longest access token lifetime
+     * plus the clock skew tolerated by the JwtDecoder
+     */
+    @Value("${jwt.keys.retention-seconds:0}")
+    long keysRetentionSeconds;
+
+    /**
+     * Access token lifetime, the longest a token signed with a removed key can still be presented
+     */
+    @Value("${jwt.access-token.expiry-seconds}")
+    long accessTokenExpirySeconds;
+
+    /**
+     * Maximum number of verified tokens kept by the JwtDecoder cache.
+     */
+    @Value("${jwt.decoder.cache.maximum-size}")
+    long jwtDecoderCacheMaximumSize;
+
+    /**
+     * Fixed BCrypt strength, 0 to calibrate it at startup against 'auth.password.hash-target-millis'
+     */
+    @Value("${auth.password.bcrypt-strength}")
+    int bcryptStrength;
+
+    /**
+     * Time budget of a single password hash used by the calibration
+     */
+    @Value("${auth.password.hash-target-millis}")
+    long hashTargetMillis;
+
+    @Value("${auth.password.bcrypt-min-strength}")
+    int bcryptMinStrength;
+
+    @Value("${auth.password.bcrypt-max-strength}")
+    int bcryptMaxStrength;
+
+    /**
+     * Maximum number of distinct 'scope' claims whose authorities are interned by ScopeAuthoritiesConverter.
+     */
+    @Value("${jwt.authorities-cache.maximum-size}")
+    int authoritiesCacheMaximumSize;
+
+    /**
+     * DaoAuthenticationProvider extends AbstractUserDetailsAuthenticationProvider. CachingDaoAuthenticationProvider
+     * skips the password hashing for credentials verified recently (opt-in through auth.credential-cache.enabled).
+     * UserDetailsService also acts as UserDetailsPasswordService, so a stored hash which needs upgrading is replaced
+     * by one of the current encoding after the next successful login.
      * @return authenticationProvider - DaoAuthenticationProvider
      */
     @Bean
     public DaoAuthenticationProvider authenticationProvider() {
         DaoAuthenticationProvider authenticationProvider =
-                new DaoAuthenticationProvider();
+                new CachingDaoAuthenticationProvider(this.verifiedCredentialCache);
 
         authenticationProvider.setUserDetailsService(this.userDetailsService);
         authenticationProvider.setPasswordEncoder(passwordEncoder());
+        authenticationProvider.setUserDetailsPasswordService(this.userDetailsService);
         return authenticationProvider;
     }
 
     /**
-     * Highest order of SecurityFilterChain defined for Basic Auth authentication only.
+     * Highest order of SecurityFilterChain defined for Basic Auth authentication only. RateLimitFilter runs ahead of
+     * the BasicAuthenticationFilter so that throttled clients never reach the password check.
      *
      * @param http - HttpSecurity
      * @return SecurityFilterChain
@@ -102,7 +205,8 @@ public class SecurityConfig {
     @Order(1)
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         http
-                .securityMatcher("/api/auth/token")
+                .securityMatcher(RateLimiter.TOKEN_PATH)
+                .addFilterBefore(new RateLimitFilter(this.rateLimiter, this.objectMapper), BasicAuthenticationFilter.class)
                 .authorizeHttpRequests(request -> request.anyRequest().authenticated())
                 .csrf(CsrfConfigurer::disable)
                 .httpBasic(h -> h.authenticationEntryPoint(this.authenticationEntryPoint))
@@ -111,7 +215,8 @@ public class SecurityConfig {
     }
 
     /**
-     * SecurityFilterChain defined for Bearer Token authentication only.
+     * SecurityFilterChain defined for Bearer Token authentication only. RateLimitFilter throttles the public signup
+     * endpoint, it lets every other path through. ScopeAuthoritiesConverter reuses the authorities of the tokens.
      *
      * @param http - HttpSecurity
      * @return SecurityFilterChain
@@ -121,10 +226,14 @@ public class SecurityConfig {
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
                 .csrf(CsrfConfigurer::disable)
-                .authorizeHttpRequests(request -> request.requestMatchers(PUBLIC_PATHS).permitAll()
+                .addFilterBefore(new RateLimitFilter(this.rateLimiter, this.objectMapper), BasicAuthenticationFilter.class)
+                // the async dispatch ending an event stream or an export was authorized by its initial request
+                .authorizeHttpRequests(request -> request.dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+                        .requestMatchers(PUBLIC_PATHS).permitAll()
                         .anyRequest().authenticated())
                 .httpBasic(AbstractHttpConfigurer::disable)
-                .oauth2ResourceServer((oauth2) -> oauth2.jwt(Customizer.withDefaults()))
+                .oauth2ResourceServer((oauth2) -> oauth2.jwt(jwt -> jwt.jwtAuthenticationConverter(
+                        new ScopeAuthoritiesConverter(this.authoritiesCacheMaximumSize))))
                 .sessionManagement((session) -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .exceptionHandling((exceptions) -> exceptions
                         .authenticationEntryPoint(new BearerTokenAuthenticationEntryPoint())
@@ -140,39 +249,75 @@ public class SecurityConfig {
         return http.build();
     }
 
+    /**
+     * Key store holding the JWT signing key and the verification keys indexed by 'kid'. When 'jwt.keys.directory' is
+     * set, the keys are loaded from that directory and reloaded on every change, otherwise the single key configured
+     * for 'jwt.signing.algorithm' is loaded from the /resources folder of the project (or 'jwt.hmac.secret' for HS256).
+     *
+     * @return JwtKeyStore
+     * @throws IOException
+     */
+    @Bean(destroyMethod = "close")
+    JwtKeyStore jwtKeyStore() throws IOException {
+        JwtSigningAlgorithm algorithm = JwtSigningAlgorithm.fromName(this.signingAlgorithm);
+        if (StringUtils.isNotBlank(this.keysDirectory)) {
+            Duration retention = this.keysRetentionSeconds > 0 ? Duration.ofSeconds(this.keysRetentionSeconds)
+                    : Duration.ofSeconds(this.accessTokenExpirySeconds).plus(JWT_CLOCK_SKEW);
+            return JwtKeyStore.watching(algorithm, Path.of(this.keysDirectory), retention);
+        }
+        return JwtKeyStore.of(algorithm,
+                JwkLoader.loadSigningKey(algorithm, this.privateKey, this.publicKey, this.hmacSecret));
+    }
+
     /**
      * Returns JwtDecoder object using org.springframework.security.oauth2.jwt.NimbusJwtDecoder implementation
-     * which utilizes RSA public key present in the /resources folder of the project.
+     * which verifies the tokens through JwkJwtProcessor with the key store verifier matching the 'kid' header. The
+     * Nimbus decoder is wrapped by CachingJwtDecoder so that repeated tokens skip the signature verification until
+     * they expire, and by RevocationCheckingJwtDecoder which rejects revoked tokens, cached or not.
      *
+     * @param jwtKeyStore            - JwtKeyStore - Signing/verification keys
+     * @param tokenRevocationService - TokenRevocationService - Revoked tokens
+     * @param meterRegistry          - MeterRegistry - registry for the cache hit/miss metrics
      * @return JwtDecoder
      */
     @Bean
-    JwtDecoder jwtDecoder() {
-        return NimbusJwtDecoder.withPublicKey(this.key).build();
+    JwtDecoder jwtDecoder(JwtKeyStore jwtKeyStore, TokenRevocationService tokenRevocationService,
+                          MeterRegistry meterRegistry) {
+        JwkJwtProcessor jwtProcessor = new JwkJwtProcessor(jwtKeyStore.getAlgorithm().getJwsAlgorithm(),
+                jwtKeyStore::verifier);
+        JwtDecoder cachingJwtDecoder = new CachingJwtDecoder(new NimbusJwtDecoder(jwtProcessor),
+                this.jwtDecoderCacheMaximumSize, meterRegistry);
+        return new RevocationCheckingJwtDecoder(cachingJwtDecoder, tokenRevocationService);
     }
 
     /**
-     * Returns JwtEncoder object using org.springframework.security.oauth2.jwt.NimbusJwtEncoder implementation .
-     * which utilizes RSA private key present in the /resources folder of the project.
+     * Returns JwtEncoder object using JwkJwtEncoder implementation which signs the tokens with the current signing
+     * key of the key store.
      *
+     * @param jwtKeyStore - JwtKeyStore - Signing/verification keys
      * @return JwtEncoder
      */
     @Bean
-    JwtEncoder jwtEncoder() {
-        JWK jwk = new RSAKey.Builder(this.key).privateKey(this.privateKey).build();
-        JWKSource<SecurityContext> jwks = new ImmutableJWKSet<>(new JWKSet(jwk));
-        return new NimbusJwtEncoder(jwks);
+    JwtEncoder jwtEncoder(JwtKeyStore jwtKeyStore) {
+        return new JwkJwtEncoder(jwtKeyStore);
     }
 
     /**
      * Password encoder for storing/fetching user password. This is utilized by DaoAuthenticationProvider bean.
-     * BCryptPasswordEncoder implementation has been used here.
+     * DelegatingPasswordEncoder stores the hashes with an '{id}' prefix and encodes with BCryptPasswordEncoder, whose
+     * strength is calibrated to the hardware unless 'auth.password.bcrypt-strength' is set. Hashes stored before the
+     * prefix was introduced are plain BCrypt and still match, they are upgraded on the next login.
      *
      * @return PasswordEncoder
      */
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        int strength = this.bcryptStrength > 0 ? this.bcryptStrength
+                : BCryptStrengthCalibrator.calibrate(this.hashTargetMillis, this.bcryptMinStrength, this.bcryptMaxStrength);
+        DelegatingPasswordEncoder passwordEncoder = new DelegatingPasswordEncoder("bcrypt",
+                Map.of("bcrypt", new BCryptPasswordEncoder(strength)));
+        passwordEncoder.setDefaultPasswordEncoderForMatches(new BCryptPasswordEncoder());
+        return passwordEncoder;
     }
 
     /**
@@ -9,6 +9,13 @@ public enum AccountConstants {
     ACCOUNT_NUMBER("accountNumber"),
     DEPOSIT_AMOUNT("depositAmount"),
     NEW_BRANCH("newBranch"),
+    AFTER("after"),
+    LIMIT("limit"),
+    LATEST("latest"),
+    BEFORE("before"),
+    FROM("from"),
+    TO("to"),
+    LAST_EVENT_ID("Last-Event-ID"),
     PROVIDE_VALID_INPUTS("Provide the mandatory request input(s): "),
     ACCOUNT_NOT_FOUND("Account not found."),
     EVENT_CREATE_ACCOUNT("create_account"),
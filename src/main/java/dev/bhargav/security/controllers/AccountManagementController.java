@@ -4,7 +4,13 @@ import dev.bhargav.security.constant.AccountConstants;
 import dev.bhargav.security.exception.BadRequestException;
 import dev.bhargav.security.exception.ResourceNotFoundException;
 import dev.bhargav.security.model.AccountDto;
+import dev.bhargav.security.model.AccountLookupRequest;
+import dev.bhargav.security.model.AccountLookupResponse;
+import dev.bhargav.security.model.AccountPage;
+import dev.bhargav.security.model.AccountVersion;
 import dev.bhargav.security.model.DeleteAccount;
+import dev.bhargav.security.model.Transaction;
+import dev.bhargav.security.model.TransactionPage;
 import dev.bhargav.security.service.AccountService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -14,11 +20,16 @@ import io.swagger.v3.oas.annotations.parameters.RequestBody;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -30,16 +41,53 @@ import java.util.List;
 @RequestMapping("/api/account")
 public class AccountManagementController {
 
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     @Autowired
     AccountService accountService;
 
+    /**
+     * Lists the accounts ordered by account number, one page at a time and without their transactions.
+     *
+     * @param after - String - Account number the page starts after, the 'X-Next-Cursor' of the previous page
+     * @param limit - String - Page size, capped by 'account.list.max-page-size'
+     * @return Accounts of the page
+     */
     @Operation(summary = "Get all accounts")
-    @ApiResponse(responseCode = "200", description = "All existing accounts",
+    @ApiResponse(responseCode = "200", description = "One page of existing accounts, the 'X-Next-Cursor' header holds the 'after' value of the next page",
             content = {@Content(mediaType = "application/json", schema = @Schema(implementation = AccountDto.class))})
+    @ApiResponse(responseCode = "304", description = "None of the accounts of the page changed since the 'If-None-Match' ETag", content = {@Content})
+    @ApiResponse(responseCode = "400", description = "Invalid cursor and/or limit supplied", content = {@Content})
     @ApiResponse(responseCode = "401", description = "Unauthorized Access", content = {@Content})
     @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE, consumes = MediaType.ALL_VALUE)
-    public List<AccountDto> getAllAccounts() {
-        return this.accountService.getAllAccounts();
+    public ResponseEntity<List<AccountDto>> getAllAccounts(
+            @Parameter(description = "Account number after which the page starts")
+            @RequestParam(value = "after", required = false) String after,
+            @Parameter(description = "Maximum number of accounts in the page")
+            @RequestParam(value = "limit", required = false) String limit) throws BadRequestException {
+        AccountPage accountPage = this.accountService.getAccounts(after, limit);
+        // a matching 'If-None-Match' turns the response into a 304 without body
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(accountPage.eTag());
+        if (accountPage.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(accountPage.nextCursor()));
+        }
+        return response.body(accountPage.accounts());
+    }
+
+    /**
+     * Streams every account as newline delimited JSON, for reconciliation dumps.
+     *
+     * @return StreamingResponseBody - One JSON account per line
+     */
+    @Operation(summary = "Export all accounts as NDJSON")
+    @ApiResponse(responseCode = "200", description = "Every account, one JSON object per line",
+            content = {@Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE, schema = @Schema(implementation = AccountDto.class))})
+    @ApiResponse(responseCode = "401", description = "Unauthorized Access", content = {@Content})
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE, consumes = MediaType.ALL_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportAccounts() {
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"accounts.ndjson\"")
+                .body(outputStream -> this.accountService.exportAccounts(outputStream));
     }
 
     /**
@@ -62,23 +110,122 @@ public class AccountManagementController {
     }
 
     /**
-     * Get account information.
+     * Get account information. The response carries the ETag and Last-Modified of the account version, a conditional
+     * request for an unchanged account is answered with a 304 from the account version alone. The ETag also depends
+     * on 'latest', which changes the body.
      *
      * @param accountNumber - Integer - Account number
-     * @return Account - Existing account details
+     * @param latest        - String - Number of latest transactions to return instead of the whole history
+     * @param webRequest    - WebRequest - Current request, for its 'If-None-Match' / 'If-Modified-Since' headers
+     * @return Account - Existing account details, null if not modified
      */
     @Operation(summary = "Get an account details")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Found an account",
                     content = { @Content(mediaType = "application/json", schema = @Schema(implementation = AccountDto.class)) }),
+            @ApiResponse(responseCode = "304", description = "Account not modified", content = @Content),
             @ApiResponse(responseCode = "400", description = "Invalid account number supplied", content = @Content),
             @ApiResponse(responseCode = "404", description = "Account not found", content = @Content),
             @ApiResponse(responseCode = "401", description = "Unauthorized Access", content = @Content)})
     @GetMapping(value = "/{accountNumber}", produces = MediaType.APPLICATION_JSON_VALUE, consumes = MediaType.ALL_VALUE)
     public AccountDto getAccountBalance(
             @Parameter(description = "Account number to be searched")
-            @PathVariable("accountNumber") String accountNumber) throws ResourceNotFoundException, BadRequestException {
-        return this.accountService.getAccountInformation(accountNumber);
+            @PathVariable("accountNumber") String accountNumber,
+            @Parameter(description = "Number of latest transactions to return, the whole history if not given")
+            @RequestParam(value = "latest", required = false) String latest,
+            WebRequest webRequest) throws ResourceNotFoundException, BadRequestException {
+        AccountVersion accountVersion = this.accountService.getAccountVersion(accountNumber, latest);
+        // sets the ETag and Last-Modified headers, and the 304 status when they match the request
+        if (webRequest.checkNotModified(accountVersion.eTag(), accountVersion.lastModified())) {
+            return null;
+        }
+        return this.accountService.getAccountInformation(accountNumber, latest);
+    }
+
+    /**
+     * Lists the transactions of an account, latest first, one page at a time.
+     *
+     * @param accountNumber - String - Account number
+     * @param before        - String - Sequence number the page starts before, the 'X-Next-Cursor' of the previous page
+     * @param limit         - String - Page size, capped by 'account.transactions.max-page-size'
+     * @param from          - String - ISO local date-time, inclusive lower bound
+     * @param to            - String - ISO local date-time, exclusive upper bound
+     * @param webRequest    - WebRequest - Current request, for its 'If-None-Match' / 'If-Modified-Since' headers
+     * @return Transactions of the page, null if not modified
+     */
+    @Operation(summary = "Get the transactions of an account")
+    @ApiResponse(responseCode = "200", description = "One page of transactions, the 'X-Next-Cursor' header holds the 'before' value of the next page",
+            content = {@Content(mediaType = "application/json", schema = @Schema(implementation = Transaction.class))})
+    @ApiResponse(responseCode = "304", description = "No transaction since the 'If-None-Match' ETag", content = {@Content})
+    @ApiResponse(responseCode = "400", description = "Invalid account number, cursor, limit and/or time range supplied", content = {@Content})
+    @ApiResponse(responseCode = "404", description = "Account not found", content = {@Content})
+    @ApiResponse(responseCode = "401", description = "Unauthorized Access", content = {@Content})
+    @GetMapping(value = "/{accountNumber}/transactions", produces = MediaType.APPLICATION_JSON_VALUE, consumes = MediaType.ALL_VALUE)
+    public ResponseEntity<List<Transaction>> getAccountTransactions(
+            @Parameter(description = "Account number to be searched")
+            @PathVariable("accountNumber") String accountNumber,
+            @Parameter(description = "Sequence number before which the page starts")
+            @RequestParam(value = "before", required = false) String before,
+            @Parameter(description = "Maximum number of transactions in the page")
+            @RequestParam(value = "limit", required = false) String limit,
+            @Parameter(description = "Earliest transaction time (inclusive), e.g. 2025-01-01T00:00:00")
+            @RequestParam(value = "from", required = false) String from,
+            @Parameter(description = "Latest transaction time (exclusive), e.g. 2025-02-01T00:00:00")
+            @RequestParam(value = "to", required = false) String to,
+            WebRequest webRequest) throws ResourceNotFoundException, BadRequestException {
+        // the ledger is append-only, any page of an unchanged account is unchanged
+        AccountVersion accountVersion = this.accountService.getAccountVersion(accountNumber);
+        if (webRequest.checkNotModified(accountVersion.eTag(), accountVersion.lastModified())) {
+            return null;
+        }
+        TransactionPage transactionPage = this.accountService.getTransactions(accountNumber, before, limit, from, to);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (transactionPage.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(transactionPage.nextCursor()));
+        }
+        return response.body(transactionPage.transactions());
+    }
+
+    /**
+     * Streams the events of an account as Server-Sent Events as soon as they are committed. Each event id is the
+     * event sequence number, a client reconnecting with 'Last-Event-ID' gets the events it missed first.
+     *
+     * @param accountNumber - String - Account number
+     * @param lastEventId   - String - Sequence number of the last received event
+     * @return SseEmitter - Event stream
+     */
+    @Operation(summary = "Stream the events of an account")
+    @ApiResponse(responseCode = "200", description = "Event stream, one 'Transaction' JSON per event",
+            content = {@Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE, schema = @Schema(implementation = Transaction.class))})
+    @ApiResponse(responseCode = "400", description = "Invalid account number and/or 'Last-Event-ID' supplied", content = {@Content})
+    @ApiResponse(responseCode = "404", description = "Account not found", content = {@Content})
+    @ApiResponse(responseCode = "401", description = "Unauthorized Access", content = {@Content})
+    @GetMapping(value = "/{accountNumber}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE, consumes = MediaType.ALL_VALUE)
+    public SseEmitter streamAccountEvents(
+            @Parameter(description = "Account number to be followed")
+            @PathVariable("accountNumber") String accountNumber,
+            @Parameter(description = "Sequence number of the last event received, sent by EventSource on reconnect")
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) throws ResourceNotFoundException, BadRequestException {
+        return this.accountService.subscribeToEvents(accountNumber, lastEventId);
+    }
+
+    /**
+     * Resolves several accounts in one call.
+     *
+     * @param accountLookupRequest - AccountLookupRequest - Account numbers to resolve
+     * @return AccountLookupResponse - Found accounts, without their transactions, and missing account numbers
+     */
+    @Operation(summary = "Get several accounts at once")
+    @ApiResponse(responseCode = "200", description = "Found accounts and missing account numbers, in request order",
+            content = {@Content(mediaType = "application/json", schema = @Schema(implementation = AccountLookupResponse.class))})
+    @ApiResponse(responseCode = "400", description = "Empty or too large list of account numbers supplied", content = {@Content})
+    @ApiResponse(responseCode = "401", description = "Unauthorized Access", content = {@Content})
+    @PostMapping(value = "/lookup", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public AccountLookupResponse lookupAccounts(
+            @RequestBody(description = "Request body takes the account numbers to resolve 'accountNumbers'", required = true,
+                content = @Content(schema = @Schema(implementation = AccountLookupRequest.class)))
+            @Valid @org.springframework.web.bind.annotation.RequestBody AccountLookupRequest accountLookupRequest) throws BadRequestException {
+        return this.accountService.lookupAccounts(accountLookupRequest);
     }
 
     /**
@@ -4,6 +4,8 @@ import dev.bhargav.security.exception.BadRequestException;
 import dev.bhargav.security.exception.InsufficientAccountBalanceException;
 import dev.bhargav.security.exception.ResourceNotFoundException;
 import dev.bhargav.security.model.AccountDto;
+import dev.bhargav.security.model.BatchTransactionRequest;
+import dev.bhargav.security.model.BatchTransactionResponse;
 import dev.bhargav.security.service.AccountService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -12,9 +14,12 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -61,4 +66,17 @@ public class AccountTransactionsController {
             @RequestParam("amount") String withdrawalAmount) throws ResourceNotFoundException, BadRequestException, InsufficientAccountBalanceException {
         return this.accountService.withdraw(accountNumber, withdrawalAmount);
     }
+
+    @Operation(summary = "Apply a batch of deposits and withdrawals")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Batch processed, see 'committed' and the per posting results",
+                    content = { @Content(mediaType = "application/json", schema = @Schema(implementation = BatchTransactionResponse.class)) }),
+            @ApiResponse(responseCode = "400", description = "Invalid or too large batch supplied", content = @Content),
+            @ApiResponse(responseCode = "401", description = "Unauthorized Access", content = @Content) })
+    @PostMapping(value = "/batch", produces = MediaType.APPLICATION_JSON_VALUE, consumes = MediaType.APPLICATION_JSON_VALUE)
+    public BatchTransactionResponse applyTransactions(
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Postings across any accounts, applied in order, and the batch mode ALL_OR_NOTHING (default) or BEST_EFFORT", required = true)
+            @Valid @RequestBody BatchTransactionRequest batchTransactionRequest) throws BadRequestException {
+        return this.accountService.applyTransactions(batchTransactionRequest);
+    }
 }
@@ -1,11 +1,16 @@
 package dev.bhargav.security.controllers;
 
 import dev.bhargav.security.entity.User;
+import dev.bhargav.security.exception.InvalidTokenException;
+import dev.bhargav.security.exception.TooManyRequestsException;
 import dev.bhargav.security.exception.UserAlreadyExistAuthenticationException;
 import dev.bhargav.security.model.ApiGenericResponse;
 import dev.bhargav.security.model.JwtAuthenticationResponse;
+import dev.bhargav.security.model.RefreshTokenRequest;
 import dev.bhargav.security.model.SignUpRequest;
 import dev.bhargav.security.model.UserDto;
+import dev.bhargav.security.service.TokenRevocationService;
+import dev.bhargav.security.service.TokenService;
 import dev.bhargav.security.service.UserManagementService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -17,18 +22,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.oauth2.jwt.JwtClaimsSet;
-import org.springframework.security.oauth2.jwt.JwtEncoder;
-import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.time.Instant;
-import java.util.stream.Collectors;
-
 @Tag(name = "Authentication Management", description = "Authentication Management APIs")
 @RestController
 @RequestMapping("/api/auth")
@@ -38,13 +38,18 @@ public class AuthController {
     UserManagementService userManagementService;
 
     @Autowired
-    JwtEncoder jwtEncoder;
+    TokenService tokenService;
+
+    @Autowired
+    TokenRevocationService tokenRevocationService;
 
     @Operation(summary = "Create a new user")
     @ApiResponse(responseCode = "200", description = "New user created successfully",
             content = {@Content(mediaType = "application/json", schema = @Schema(implementation = ApiGenericResponse.class))})
+    @ApiResponse(responseCode = "429", description = "Too many signups in progress, retry after 'Retry-After' seconds", content = {@Content})
     @PostMapping(value = "/signup", produces = MediaType.APPLICATION_JSON_VALUE, consumes = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<ApiGenericResponse> registerUser(@Valid @RequestBody SignUpRequest signUpRequest) throws UserAlreadyExistAuthenticationException {
+    public ResponseEntity<ApiGenericResponse> registerUser(@Valid @RequestBody SignUpRequest signUpRequest)
+            throws UserAlreadyExistAuthenticationException, TooManyRequestsException {
         UserDto userDto;
         try {
             userDto = this.userManagementService.registerNewUser(signUpRequest);
@@ -55,34 +60,31 @@ public class AuthController {
     }
 
     @Operation(summary = "Get Bearer Access Token")
-    @ApiResponse(responseCode = "200", description = "Fetched access token",
+    @ApiResponse(responseCode = "200", description = "Fetched access token and refresh token",
             content = {@Content(mediaType = "application/json", schema = @Schema(implementation = JwtAuthenticationResponse.class))})
+    @ApiResponse(responseCode = "401", description = "Unauthorized Access", content = {@Content})
     @PostMapping(value = "/token", produces = MediaType.APPLICATION_JSON_VALUE, consumes = MediaType.ALL_VALUE)
-    public ResponseEntity<JwtAuthenticationResponse> getToken(Authentication authentication) {
+    public ResponseEntity<JwtAuthenticationResponse> getToken(Authentication authentication) throws InvalidTokenException {
         User localUser = (User) authentication.getPrincipal();
-        String jwt = getToken(localUser);
-        return ResponseEntity.ok((new JwtAuthenticationResponse(jwt)));
+        return ResponseEntity.ok(this.tokenService.issueTokens(localUser));
     }
 
-    /**
-     * Builds JWT token for the given User.
-     *
-     * @param localUser - UserEntity which implements UserDetails
-     * @return token - String - JWT Token
-     */
-    private String getToken(User localUser) {
-        Instant now = Instant.now();
-        long expiry = 36000L;
-        String scope = localUser.getAuthorities().stream()
-                .map(GrantedAuthority::getAuthority)
-                .collect(Collectors.joining(" "));
-        JwtClaimsSet claims = JwtClaimsSet.builder()
-                .issuer("self")
-                .issuedAt(now)
-                .expiresAt(now.plusSeconds(expiry))
-                .subject(localUser.getUsername())
-                .claim("scope", scope)
-                .build();
-        return this.jwtEncoder.encode(JwtEncoderParameters.from(claims)).getTokenValue();
+    @Operation(summary = "Renew Bearer Access Token with a refresh token")
+    @ApiResponse(responseCode = "200", description = "Fetched new access token and refresh token",
+            content = {@Content(mediaType = "application/json", schema = @Schema(implementation = JwtAuthenticationResponse.class))})
+    @ApiResponse(responseCode = "401", description = "Invalid or expired refresh token", content = {@Content})
+    @PostMapping(value = "/refresh", produces = MediaType.APPLICATION_JSON_VALUE, consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<JwtAuthenticationResponse> refreshToken(@Valid @RequestBody RefreshTokenRequest refreshTokenRequest) throws InvalidTokenException {
+        return ResponseEntity.ok(this.tokenService.refresh(refreshTokenRequest.refreshToken()));
+    }
+
+    @Operation(summary = "Revoke the presented Bearer Access Token")
+    @ApiResponse(responseCode = "200", description = "Access token revoked",
+            content = {@Content(mediaType = "application/json", schema = @Schema(implementation = ApiGenericResponse.class))})
+    @ApiResponse(responseCode = "401", description = "Unauthorized Access", content = {@Content})
+    @PostMapping(value = "/revoke", produces = MediaType.APPLICATION_JSON_VALUE, consumes = MediaType.ALL_VALUE)
+    public ResponseEntity<ApiGenericResponse> revokeToken(@AuthenticationPrincipal Jwt jwt) {
+        this.tokenRevocationService.revokeToken(jwt);
+        return ResponseEntity.ok().body(new ApiGenericResponse(true, "Access token has been revoked"));
     }
 }
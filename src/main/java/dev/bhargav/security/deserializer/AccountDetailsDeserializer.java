@@ -1,7 +1,10 @@
 package dev.bhargav.security.deserializer;
 
 import dev.bhargav.security.entity.Account;
+import dev.bhargav.security.entity.AccountTransaction;
 import dev.bhargav.security.model.AccountDto;
+import dev.bhargav.security.model.Transaction;
+import dev.bhargav.security.repository.AccountSummary;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
@@ -17,13 +20,50 @@ public class AccountDetailsDeserializer {
                 .accountStartDate(account.getStartDate())
                 .accountBranch(account.getBranch())
                 .accountBalance(account.getBalance())
-                .accountTransactions(account.getTransactions())
                 .build();
     }
 
-    public List<AccountDto> deserializeAccounts(List<Account> accountList) {
-        List<AccountDto> accounts = new ArrayList<>();
-        accountList.forEach(account -> accounts.add(this.deserializeAccount(account)));
+    public AccountDto deserializeAccount(Account account, List<AccountTransaction> accountTransactions) {
+        return AccountDto.builder()
+                .accountNumber(account.getAccNo())
+                .accountHolderName(account.getHolderName())
+                .accountStartDate(account.getStartDate())
+                .accountBranch(account.getBranch())
+                .accountBalance(account.getBalance())
+                .accountTransactions(this.deserializeTransactions(accountTransactions))
+                .build();
+    }
+
+    public AccountDto deserializeAccountSummary(AccountSummary accountSummary) {
+        return AccountDto.builder()
+                .accountNumber(accountSummary.getAccNo())
+                .accountHolderName(accountSummary.getHolderName())
+                .accountStartDate(accountSummary.getStartDate())
+                .accountBranch(accountSummary.getBranch())
+                .accountBalance(accountSummary.getBalance())
+                .build();
+    }
+
+    public List<AccountDto> deserializeAccountSummaries(List<AccountSummary> accountSummaries) {
+        List<AccountDto> accounts = new ArrayList<>(accountSummaries.size());
+        accountSummaries.forEach(accountSummary -> accounts.add(this.deserializeAccountSummary(accountSummary)));
         return accounts;
     }
+
+    public List<Transaction> deserializeTransactions(List<AccountTransaction> accountTransactions) {
+        List<Transaction> transactions = new ArrayList<>(accountTransactions.size());
+        accountTransactions.forEach(accountTransaction -> transactions.add(this.deserializeTransaction(accountTransaction)));
+        return transactions;
+    }
+
+    public Transaction deserializeTransaction(AccountTransaction accountTransaction) {
+        return Transaction.builder()
+                .sequence(accountTransaction.getSequence())
+                .type(accountTransaction.getType())
+                .ts(accountTransaction.getTs().toString())
+                .transactionAmt(accountTransaction.getTransactionAmt())
+                .balance(accountTransaction.getBalance())
+                .error(accountTransaction.getError())
+                .build();
+    }
 }
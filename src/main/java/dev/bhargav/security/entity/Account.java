@@ -1,24 +1,20 @@
 package dev.bhargav.security.entity;
 
-import dev.bhargav.security.model.Transaction;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import org.hibernate.annotations.JdbcTypeCode;
-import org.hibernate.type.SqlTypes;
 
 import java.util.Date;
-import java.util.List;
 
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "account")
+@Table(name = "account", indexes = @Index(name = "uk_account_acc_no", columnList = "acc_no", unique = true))
 public class Account {
 
     @Id
@@ -42,9 +38,12 @@ public class Account {
     @Column(name = "balance")
     private Long balance;
 
-    @JdbcTypeCode(SqlTypes.JSON)
-    @Column(name = "transactions", columnDefinition = "json")
-    private List<Transaction> transactions;
+    /**
+     * Sequence number of the latest event in the account_transaction ledger, null until the account history has been
+     * moved out of the legacy 'transactions' JSON column by AccountLedgerMigration.
+     */
+    @Column(name = "last_sequence")
+    private Long lastSequence;
 
     @Column(name = "created_by")
     private String createdBy;
@@ -56,7 +55,7 @@ public class Account {
     @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
     private Date createdDate;
 
-    @Column(name = "modified_date", updatable = false)
+    @Column(name = "modified_date")
     @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
     private Date modifiedDate;
 }
@@ -0,0 +1,26 @@
+package dev.bhargav.security.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * High part of the hi/lo account number allocation: the next block of account numbers to be reserved by a node.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "account_number_sequence")
+public class AccountNumberSequence {
+
+    @Id
+    @Column(name = "name", length = 64)
+    private String name;
+
+    @Column(name = "next_block", nullable = false)
+    private Long nextBlock;
+}
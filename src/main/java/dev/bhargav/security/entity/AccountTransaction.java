@@ -0,0 +1,73 @@
+package dev.bhargav.security.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * One event of the append-only account ledger. Events are numbered per account from 1, the last number in use is
+ * kept in Account.lastSequence. Rows are only ever inserted, so isNew() is always true and saving one never
+ * selects it first.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@IdClass(AccountTransaction.AccountTransactionId.class)
+@Table(name = "account_transaction", indexes = @Index(name = "idx_account_transaction_acc_no_ts", columnList = "acc_no, ts"))
+public class AccountTransaction implements Persistable<AccountTransaction.AccountTransactionId> {
+
+    @Id
+    @Column(name = "acc_no", updatable = false)
+    private Integer accNo;
+
+    @Id
+    @Column(name = "sequence", updatable = false)
+    private Long sequence;
+
+    @Column(name = "type", length = 32, nullable = false, updatable = false)
+    private String type;
+
+    @Column(name = "ts", nullable = false, updatable = false)
+    private LocalDateTime ts;
+
+    @Column(name = "transaction_amt", updatable = false)
+    private Long transactionAmt;
+
+    @Column(name = "balance", updatable = false)
+    private Long balance;
+
+    @Column(name = "error", updatable = false)
+    private String error;
+
+    @Override
+    public AccountTransactionId getId() {
+        return new AccountTransactionId(this.accNo, this.sequence);
+    }
+
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class AccountTransactionId implements Serializable {
+
+        @Serial
+        private static final long serialVersionUID = 2286465036529186372L;
+
+        private Integer accNo;
+
+        private Long sequence;
+    }
+}
@@ -0,0 +1,50 @@
+package dev.bhargav.security.entity;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * Revoked access token ('jti' of a single token) or revoked subject (every token of a user issued up to the
+ * revocation time). Rows are kept until no token they cover can still be valid.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "revoked_token", indexes = {
+        @Index(name = "idx_revoked_token_revoked_at", columnList = "revoked_at"),
+        @Index(name = "idx_revoked_token_expires_at", columnList = "expires_at")
+})
+public class RevokedToken {
+
+    /**
+     * 'jti' of the revoked token, or the username of the revoked subject, see RevocationType.
+     */
+    @Id
+    @Column(name = "revocation_key", updatable = false)
+    private String revocationKey;
+
+    @Column(name = "type", length = 16, nullable = false)
+    @Enumerated(EnumType.STRING)
+    private RevocationType type;
+
+    @Column(name = "revoked_at", nullable = false)
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private Date revokedAt;
+
+    @Column(name = "expires_at", nullable = false)
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private Date expiresAt;
+
+    public enum RevocationType {
+        TOKEN,
+        SUBJECT
+    }
+}
@@ -10,7 +10,6 @@ import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import java.io.Serial;
-import java.util.LinkedHashSet;
 import java.util.Set;
 
 @Data
@@ -24,6 +23,11 @@ public class User implements UserDetails {
     @Serial
     private static final long serialVersionUID = -2532457703822323378L;
 
+    /**
+     * Every user has the same authorities, shared instead of being built on each call.
+     */
+    private static final Set<GrantedAuthority> AUTHORITIES = Set.of(new SimpleGrantedAuthority("USER"));
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "id", updatable = false)
@@ -37,9 +41,7 @@ public class User implements UserDetails {
 
     @Override
     public Set<GrantedAuthority> getAuthorities() {
-        Set<GrantedAuthority> authorities = new LinkedHashSet<>();
-        authorities.add(new SimpleGrantedAuthority("USER"));
-        return authorities;
+        return AUTHORITIES;
     }
 
     @Override
@@ -0,0 +1,444 @@
+package dev.bhargav.security.events;
+
+import dev.bhargav.security.deserializer.AccountDetailsDeserializer;
+import dev.bhargav.security.entity.AccountTransaction;
+import dev.bhargav.security.repository.AccountTransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-node fan-out of committed account events to Server-Sent Events subscribers.
+ * <p>
+ * The writers publish their events once the transaction has committed. Every subscriber has a bounded buffer, drained
+ * by a small pool of sender threads with a bounded queue, so neither the writers nor the servlet threads wait for a
+ * client; a subscriber whose buffer is full, or whose drain cannot be queued, is disconnected. Only one sender works
+ * for a subscriber at a time, heartbeats included, and only that sender completes the emitter of a disconnected
+ * subscriber: completing it from a writer would wait for a write in progress to a slow client. Heartbeats are sent
+ * by one task per 'account.events.heartbeat-batch-size' idle subscribers, a tick whose task cannot be queued is
+ * skipped.
+ * <p>
+ * Writes block until the client reads them, up to the write timeout of the servlet container
+ * ('server.tomcat.connection-timeout'). A subscriber whose write takes longer than 'account.events.send-timeout-ms' is
+ * unregistered and completed once the write returns, and the pool grows by one thread per stuck sender, up to
+ * 'account.events.max-sender-threads', so that the other subscribers keep getting their events.
+ * <p>
+ * Event ids are the ledger sequence numbers: a client reconnecting with 'Last-Event-ID' gets the events it missed
+ * replayed from the ledger before the live ones, which also covers the events committed on other nodes.
+ */
+@Component
+public class AccountEventHub implements InitializingBean, DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AccountEventHub.class);
+
+    @Autowired
+    AccountTransactionRepository accountTransactionRepository;
+
+    @Autowired
+    AccountDetailsDeserializer accountDetailsDeserializer;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Value("${account.events.buffer-size}")
+    private int bufferSize;
+
+    @Value("${account.events.sender-threads}")
+    private int senderThreads;
+
+    @Value("${account.events.max-sender-threads}")
+    private int maxSenderThreads;
+
+    @Value("${account.events.sender-queue-capacity}")
+    private int senderQueueCapacity;
+
+    @Value("${account.events.send-timeout-ms}")
+    private long sendTimeout;
+
+    @Value("${account.events.heartbeat-batch-size}")
+    private int heartbeatBatchSize;
+
+    @Value("${account.events.timeout-ms}")
+    private long timeout;
+
+    @Value("${account.events.replay-page-size}")
+    private int replayPageSize;
+
+    private final ConcurrentMap<Integer, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    /**
+     * Subscribers whose sender is writing to the client.
+     */
+    private final Set<Subscriber> sending = ConcurrentHashMap.newKeySet();
+
+    private ThreadPoolExecutor sender;
+
+    private Counter dropped;
+
+    /**
+     * Opens an event stream of the account.
+     *
+     * @param accNo       - Integer - Account number
+     * @param lastEventId - Long - Sequence number of the last event the client received, null for live events only
+     * @return SseEmitter
+     */
+    public SseEmitter subscribe(Integer accNo, Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(this.timeout);
+        Subscriber subscriber = new Subscriber(accNo, emitter, lastEventId, this.bufferSize);
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+        // registered before the replay, the live events arriving meanwhile are buffered and de-duplicated
+        this.subscribers.compute(accNo, (key, accountSubscribers) -> {
+            Set<Subscriber> updated = accountSubscribers != null ? accountSubscribers : ConcurrentHashMap.newKeySet();
+            updated.add(subscriber);
+            return updated;
+        });
+        this.subscriberCount.incrementAndGet();
+        schedule(subscriber);
+        return emitter;
+    }
+
+    /**
+     * Publishes the events of an account once the current transaction commits. Nothing is published on rollback.
+     *
+     * @param events - List - Events of a single account, in sequence order
+     */
+    public void publishAfterCommit(List<AccountTransaction> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        afterCommit(() -> {
+            Set<Subscriber> accountSubscribers = this.subscribers.get(events.get(0).getAccNo());
+            if (accountSubscribers == null) {
+                return;
+            }
+            for (Subscriber subscriber : accountSubscribers) {
+                boolean buffered = true;
+                for (AccountTransaction event : events) {
+                    buffered = buffered && subscriber.buffer.offer(event);
+                }
+                if (!buffered) {
+                    this.dropped.increment();
+                    LOG.debug("Disconnecting a slow event subscriber of account {}", subscriber.accNo);
+                    remove(subscriber);
+                    evict(subscriber);
+                } else {
+                    schedule(subscriber);
+                }
+            }
+        });
+    }
+
+    /**
+     * Ends the event streams of an account once the current transaction commits, when the account is deleted.
+     *
+     * @param accNo - Integer - Account number
+     */
+    public void closeAfterCommit(Integer accNo) {
+        afterCommit(() -> {
+            Set<Subscriber> accountSubscribers = this.subscribers.remove(accNo);
+            if (accountSubscribers != null) {
+                accountSubscribers.forEach(subscriber -> {
+                    this.subscriberCount.decrementAndGet();
+                    evict(subscriber);
+                });
+            }
+        });
+    }
+
+    /**
+     * Sends a comment to every idle subscriber, so that dead connections are detected and idle proxies keep the
+     * streams. A subscriber whose sender is already scheduled is skipped, it is getting events anyway. The idle
+     * subscribers are handed to the senders in batches; once the sender queue is full the rest of the tick is skipped,
+     * their streams stay open and get the next heartbeat.
+     */
+    @Scheduled(fixedDelayString = "${account.events.heartbeat-interval-ms}")
+    public void heartbeat() {
+        List<Subscriber> batch = new ArrayList<>(this.heartbeatBatchSize);
+        for (Set<Subscriber> accountSubscribers : this.subscribers.values()) {
+            for (Subscriber subscriber : accountSubscribers) {
+                if (!subscriber.scheduled.compareAndSet(false, true)) {
+                    continue;
+                }
+                batch.add(subscriber);
+                if (batch.size() == this.heartbeatBatchSize) {
+                    if (!submitHeartbeats(batch)) {
+                        return;
+                    }
+                    batch = new ArrayList<>(this.heartbeatBatchSize);
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            submitHeartbeats(batch);
+        }
+    }
+
+    /**
+     * Unregisters the subscribers whose write has been blocked for longer than the send timeout, and sizes the sender
+     * pool so that as many threads as usual are left for the other subscribers.
+     */
+    @Scheduled(fixedDelayString = "${account.events.send-timeout-ms}")
+    public void evictStuckSenders() {
+        long now = System.nanoTime();
+        int stuck = 0;
+        for (Subscriber subscriber : this.sending) {
+            if (now - subscriber.sendingSince < TimeUnit.MILLISECONDS.toNanos(this.sendTimeout)) {
+                continue;
+            }
+            stuck++;
+            if (!subscriber.evicted) {
+                // completing the emitter would wait for the blocked write, the sender completes it once it returns
+                subscriber.evicted = true;
+                remove(subscriber);
+                this.dropped.increment();
+                LOG.debug("Disconnecting an event subscriber of account {} stuck in a write", subscriber.accNo);
+            }
+        }
+        this.sender.setCorePoolSize(Math.min(this.senderThreads + stuck, this.maxSenderThreads));
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        this.sender = new ThreadPoolExecutor(this.senderThreads, this.maxSenderThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(this.senderQueueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "account-events-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.dropped = Counter.builder("account.events.dropped")
+                .description("Event subscribers disconnected because they could not keep up with their events")
+                .register(this.meterRegistry);
+        Gauge.builder("account.events.subscribers", this.subscriberCount, AtomicInteger::get)
+                .description("Open account event streams")
+                .register(this.meterRegistry);
+    }
+
+    @Override
+    public void destroy() {
+        this.sender.shutdownNow();
+        this.subscribers.values().forEach(accountSubscribers ->
+                accountSubscribers.forEach(subscriber -> subscriber.emitter.complete()));
+        this.subscribers.clear();
+    }
+
+    /**
+     * Queues the heartbeats of subscribers marked scheduled by the caller. When the queue is full they are released
+     * without a heartbeat.
+     *
+     * @return false if the sender queue is full
+     */
+    private boolean submitHeartbeats(List<Subscriber> batch) {
+        try {
+            this.sender.execute(() -> batch.forEach(subscriber -> {
+                if (send(subscriber, SseEmitter.event().comment("heartbeat"))) {
+                    drain(subscriber);
+                }
+            }));
+            return true;
+        } catch (RejectedExecutionException e) {
+            batch.forEach(subscriber -> {
+                subscriber.scheduled.set(false);
+                // events or an eviction may have come in while the flag was held
+                if (subscriber.evicted || !subscriber.buffer.isEmpty()) {
+                    schedule(subscriber);
+                }
+            });
+            return false;
+        }
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (!subscriber.scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            this.sender.execute(() -> drain(subscriber));
+        } catch (RejectedExecutionException e) {
+            // holding the 'scheduled' flag, no sender is writing to the emitter and completing it cannot block
+            if (!subscriber.evicted) {
+                this.dropped.increment();
+                LOG.debug("Disconnecting an event subscriber of account {}, the sender queue is full",
+                        subscriber.accNo);
+                subscriber.evicted = true;
+                remove(subscriber);
+            }
+            subscriber.emitter.complete();
+        }
+    }
+
+    /**
+     * Marks the subscriber, already unregistered by the caller, for completion by its sender. The caller never
+     * completes the emitter itself, since a sender may be blocked in a write to it.
+     */
+    private void evict(Subscriber subscriber) {
+        subscriber.evicted = true;
+        schedule(subscriber);
+    }
+
+    /**
+     * Replays the missed events if the subscriber has just connected, then sends its buffered events. Runs for one
+     * subscriber at a time, the 'scheduled' flag is reset once the buffer is empty. Completes the emitter instead
+     * once the subscriber has been evicted.
+     */
+    private void drain(Subscriber subscriber) {
+        do {
+            if (subscriber.evicted) {
+                subscriber.emitter.complete();
+                return;
+            }
+            if (subscriber.replayFrom != null) {
+                replay(subscriber);
+            }
+            AccountTransaction event;
+            while ((event = subscriber.buffer.poll()) != null) {
+                if (event.getSequence() > subscriber.lastSent && !sendEvent(subscriber, event)) {
+                    return;
+                }
+            }
+            subscriber.scheduled.set(false);
+        } while ((subscriber.evicted || !subscriber.buffer.isEmpty())
+                && subscriber.scheduled.compareAndSet(false, true));
+    }
+
+    private void replay(Subscriber subscriber) {
+        long after = subscriber.replayFrom;
+        subscriber.replayFrom = null;
+        subscriber.lastSent = after;
+        List<AccountTransaction> page;
+        do {
+            page = this.accountTransactionRepository.findByAccNoAndSequenceGreaterThanOrderBySequenceAsc(
+                    subscriber.accNo, subscriber.lastSent, Limit.of(this.replayPageSize));
+            for (AccountTransaction event : page) {
+                if (!sendEvent(subscriber, event)) {
+                    return;
+                }
+            }
+        } while (page.size() == this.replayPageSize);
+    }
+
+    private boolean sendEvent(Subscriber subscriber, AccountTransaction event) {
+        if (!send(subscriber, SseEmitter.event()
+                .id(String.valueOf(event.getSequence()))
+                .data(this.accountDetailsDeserializer.deserializeTransaction(event), MediaType.APPLICATION_JSON))) {
+            return false;
+        }
+        subscriber.lastSent = event.getSequence();
+        return true;
+    }
+
+    private boolean send(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        if (subscriber.evicted) {
+            subscriber.emitter.complete();
+            return false;
+        }
+        subscriber.sendingSince = System.nanoTime();
+        this.sending.add(subscriber);
+        try {
+            subscriber.emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            // client gone or stream already completed
+            subscriber.emitter.completeWithError(e);
+            remove(subscriber);
+            return false;
+        } finally {
+            this.sending.remove(subscriber);
+        }
+        if (subscriber.evicted) {
+            subscriber.emitter.complete();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Unregisters the subscriber, dropping the set of the account along with its last subscriber. Runs atomically with
+     * subscribe for the same account.
+     */
+    private void remove(Subscriber subscriber) {
+        this.subscribers.computeIfPresent(subscriber.accNo, (key, accountSubscribers) -> {
+            if (accountSubscribers.remove(subscriber)) {
+                this.subscriberCount.decrementAndGet();
+            }
+            return accountSubscribers.isEmpty() ? null : accountSubscribers;
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static final class Subscriber {
+
+        private final Integer accNo;
+
+        private final SseEmitter emitter;
+
+        private final BlockingQueue<AccountTransaction> buffer;
+
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        /**
+         * Sequence number to replay the ledger from, null once replayed or when the client asked for live events only.
+         */
+        private volatile Long replayFrom;
+
+        private volatile long lastSent;
+
+        /**
+         * System.nanoTime() when the current write started, meaningful while the subscriber is in 'sending'.
+         */
+        private volatile long sendingSince;
+
+        /**
+         * Set once the subscriber has been unregistered, its sender completes the emitter.
+         */
+        private volatile boolean evicted;
+
+        private Subscriber(Integer accNo, SseEmitter emitter, Long replayFrom, int bufferSize) {
+            this.accNo = accNo;
+            this.emitter = emitter;
+            this.replayFrom = replayFrom;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package dev.bhargav.security.exception;
+
+import java.io.Serial;
+
+public class InvalidTokenException extends Exception {
+
+    @Serial
+    private static final long serialVersionUID = -5302820923472026061L;
+
+    public InvalidTokenException() {
+        super();
+    }
+
+    public InvalidTokenException(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,23 @@
+package dev.bhargav.security.exception;
+
+import java.io.Serial;
+
+public class TooManyRequestsException extends Exception {
+
+    @Serial
+    private static final long serialVersionUID = -5302820923472026061L;
+
+    /**
+     * Seconds after which the client may retry, sent in the 'Retry-After' header.
+     */
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(final String message, final long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return this.retryAfterSeconds;
+    }
+}
@@ -3,6 +3,8 @@ package dev.bhargav.security.exception.handler;
 import dev.bhargav.security.exception.*;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.HttpMediaTypeNotSupportedException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -72,6 +74,32 @@ public class ExceptionHandlerControllerAdvice {
                 .build();
     }
 
+    @ExceptionHandler(InvalidTokenException.class)
+    @ResponseStatus(value = HttpStatus.UNAUTHORIZED)
+    public @ResponseBody ExceptionResponse handleInvalidTokenException(final InvalidTokenException exception,
+                                                                       final HttpServletRequest request) {
+
+        return ExceptionResponse.builder()
+                .errorMessage(exception.getMessage())
+                .requestedURI(request.getRequestURI())
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+
+    @ExceptionHandler(TooManyRequestsException.class)
+    @ResponseStatus(value = HttpStatus.TOO_MANY_REQUESTS)
+    public @ResponseBody ExceptionResponse handleTooManyRequestsException(final TooManyRequestsException exception,
+                                                                          final HttpServletRequest request,
+                                                                          final HttpServletResponse response) {
+
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(exception.getRetryAfterSeconds()));
+        return ExceptionResponse.builder()
+                .errorMessage(exception.getMessage())
+                .requestedURI(request.getRequestURI())
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+
     @ExceptionHandler(BadRequestException.class)
     @ResponseStatus(value = HttpStatus.BAD_REQUEST)
     public @ResponseBody ExceptionResponse handleBadRequestException(final BadRequestException exception,
@@ -0,0 +1,53 @@
+package dev.bhargav.security.jwt;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.JwtEncodingException;
+
+import java.time.Instant;
+import java.util.Date;
+
+/**
+ * JwtEncoder signing the tokens with the current signing key of the JwtKeyStore, of any algorithm listed in
+ * JwtSigningAlgorithm. Unlike NimbusJwtEncoder it also supports EdDSA. Every token carries the 'kid' of its key.
+ */
+public class JwkJwtEncoder implements JwtEncoder {
+
+    private final JwtKeyStore keyStore;
+
+    private final JWSAlgorithm algorithm;
+
+    public JwkJwtEncoder(JwtKeyStore keyStore) {
+        this.keyStore = keyStore;
+        this.algorithm = keyStore.getAlgorithm().getJwsAlgorithm();
+    }
+
+    @Override
+    public Jwt encode(JwtEncoderParameters parameters) throws JwtEncodingException {
+        JwtClaimsSet claims = parameters.getClaims();
+        JwtKeyStore.SigningKey signingKey = this.keyStore.signingKey();
+        JWSHeader header = new JWSHeader.Builder(this.algorithm)
+                .type(JOSEObjectType.JWT)
+                .keyID(signingKey.jwk().getKeyID())
+                .build();
+        JWTClaimsSet.Builder claimsBuilder = new JWTClaimsSet.Builder();
+        claims.getClaims().forEach((name, value) ->
+                claimsBuilder.claim(name, value instanceof Instant instant ? Date.from(instant) : value));
+        SignedJWT signedJwt = new SignedJWT(header, claimsBuilder.build());
+        try {
+            signedJwt.sign(signingKey.signer());
+        } catch (JOSEException e) {
+            throw new JwtEncodingException("An error occurred while attempting to sign the JWT: " + e.getMessage(), e);
+        }
+        return new Jwt(signedJwt.serialize(), claims.getIssuedAt(), claims.getExpiresAt(),
+                header.toJSONObject(), claims.getClaims());
+    }
+}
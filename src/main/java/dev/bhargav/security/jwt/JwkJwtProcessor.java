@@ -0,0 +1,90 @@
+package dev.bhargav.security.jwt;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.crypto.ECDSAVerifier;
+import com.nimbusds.jose.crypto.Ed25519Verifier;
+import com.nimbusds.jose.crypto.MACVerifier;
+import com.nimbusds.jose.crypto.RSASSAVerifier;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.proc.BadJOSEException;
+import com.nimbusds.jose.proc.BadJWSException;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.nimbusds.jwt.proc.BadJWTException;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+
+import java.text.ParseException;
+import java.util.function.Function;
+
+/**
+ * JWT processor verifying signed tokens with a JWSVerifier resolved by the 'kid' header. The verifiers are created once
+ * per key, which also makes EdDSA verification possible (the default Nimbus key selector cannot convert OKP keys).
+ * The claim set is not validated here, Spring Security validates it independent of Nimbus.
+ */
+public class JwkJwtProcessor extends DefaultJWTProcessor<SecurityContext> {
+
+    private final JWSAlgorithm algorithm;
+
+    private final Function<String, JWSVerifier> verifiers;
+
+    /**
+     * @param algorithm - JWSAlgorithm - the only accepted algorithm
+     * @param verifiers - Function - resolves the verifier for a 'kid' header value (which may be null), returns null
+     *                  for unknown keys
+     */
+    public JwkJwtProcessor(JWSAlgorithm algorithm, Function<String, JWSVerifier> verifiers) {
+        this.algorithm = algorithm;
+        this.verifiers = verifiers;
+    }
+
+    @Override
+    public JWTClaimsSet process(SignedJWT signedJwt, SecurityContext context) throws BadJOSEException, JOSEException {
+        JWSHeader header = signedJwt.getHeader();
+        if (!this.algorithm.equals(header.getAlgorithm())) {
+            throw new BadJOSEException("Signed JWT rejected: Another algorithm expected");
+        }
+        JWSVerifier verifier = this.verifiers.apply(header.getKeyID());
+        if (verifier == null) {
+            throw new BadJOSEException("Signed JWT rejected: No matching key found");
+        }
+        if (!signedJwt.verify(verifier)) {
+            throw new BadJWSException("Signed JWT rejected: Invalid signature");
+        }
+        try {
+            return signedJwt.getJWTClaimsSet();
+        } catch (ParseException e) {
+            throw new BadJWTException("Signed JWT rejected: Invalid claims set", e);
+        }
+    }
+
+    /**
+     * Creates the verifier for the public part of the given key.
+     *
+     * @param jwk - JWK - RSA, EC, Ed25519 or HMAC key
+     * @return JWSVerifier
+     * @throws JOSEException if the key type is not supported
+     */
+    public static JWSVerifier createVerifier(JWK jwk) throws JOSEException {
+        if (jwk instanceof RSAKey rsaKey) {
+            return new RSASSAVerifier(rsaKey.toRSAPublicKey());
+        }
+        if (jwk instanceof ECKey ecKey) {
+            return new ECDSAVerifier(ecKey.toECPublicKey());
+        }
+        if (jwk instanceof OctetKeyPair octetKeyPair) {
+            return new Ed25519Verifier(octetKeyPair.toPublicJWK());
+        }
+        if (jwk instanceof OctetSequenceKey octetSequenceKey) {
+            return new MACVerifier(octetSequenceKey);
+        }
+        throw new JOSEException("Unsupported JWK type: " + jwk.getKeyType());
+    }
+}
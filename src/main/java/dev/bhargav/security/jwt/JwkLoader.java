@@ -0,0 +1,147 @@
+package dev.bhargav.security.jwt;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.util.Base64URL;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.EdECPrivateKey;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * Builds the JWKs used for signing/verifying the access tokens from PEM encoded keys (PKCS#8 private key and X.509
+ * public key, as generated by OpenSSL) or from a shared secret for HS256.
+ */
+public final class JwkLoader {
+
+    private static final int ED25519_KEY_LENGTH = 32;
+
+    private static final int MINIMUM_HMAC_SECRET_LENGTH = 32;
+
+    private JwkLoader() {
+    }
+
+    /**
+     * Loads the signing key of the given algorithm.
+     *
+     * @param algorithm  - JwtSigningAlgorithm - Signing algorithm
+     * @param privateKey - Resource - PEM encoded private key, not used for HS256
+     * @param publicKey  - Resource - PEM encoded public key, not used for HS256
+     * @param hmacSecret - String - Shared secret, used for HS256 only
+     * @return JWK holding both the private and the public part of the key, identified by its thumbprint
+     */
+    public static JWK loadSigningKey(JwtSigningAlgorithm algorithm, Resource privateKey, Resource publicKey,
+                                     String hmacSecret) {
+        return loadKey(algorithm, privateKey, publicKey, hmacSecret, null);
+    }
+
+    /**
+     * Loads a key of the given algorithm.
+     *
+     * @param algorithm  - JwtSigningAlgorithm - Signing algorithm
+     * @param privateKey - Resource - PEM encoded private key, null for a verification only key, not used for HS256
+     * @param publicKey  - Resource - PEM encoded public key, not used for HS256
+     * @param hmacSecret - String - Shared secret, used for HS256 only
+     * @param keyId      - String - Key ID ('kid'), null to use the JWK thumbprint
+     * @return JWK
+     */
+    public static JWK loadKey(JwtSigningAlgorithm algorithm, Resource privateKey, Resource publicKey,
+                              String hmacSecret, String keyId) {
+        try {
+            JWK jwk = switch (algorithm) {
+                case RS256 -> new RSAKey.Builder((RSAPublicKey) readPublicKey(publicKey, "RSA"))
+                        .privateKey(privateKey == null ? null : (RSAPrivateKey) readPrivateKey(privateKey, "RSA"))
+                        .keyUse(KeyUse.SIGNATURE)
+                        .algorithm(algorithm.getJwsAlgorithm())
+                        .keyID(keyId)
+                        .build();
+                case ES256 -> new ECKey.Builder(Curve.P_256, (ECPublicKey) readPublicKey(publicKey, "EC"))
+                        .privateKey(privateKey == null ? null : (ECPrivateKey) readPrivateKey(privateKey, "EC"))
+                        .keyUse(KeyUse.SIGNATURE)
+                        .algorithm(algorithm.getJwsAlgorithm())
+                        .keyID(keyId)
+                        .build();
+                case EDDSA -> new OctetKeyPair.Builder(Curve.Ed25519, Base64URL.encode(rawEd25519PublicKey(publicKey)))
+                        .d(privateKey == null ? null : Base64URL.encode(rawEd25519PrivateKey(privateKey)))
+                        .keyUse(KeyUse.SIGNATURE)
+                        .algorithm(algorithm.getJwsAlgorithm())
+                        .keyID(keyId)
+                        .build();
+                case HS256 -> hmacKey(algorithm, hmacSecret, keyId);
+            };
+            return keyId != null ? jwk : withThumbprintKeyId(jwk);
+        } catch (IOException | GeneralSecurityException | JOSEException | ParseException e) {
+            throw new IllegalStateException("Unable to load the " + algorithm + " JWT key", e);
+        }
+    }
+
+    private static JWK hmacKey(JwtSigningAlgorithm algorithm, String hmacSecret, String keyId) {
+        byte[] secret = hmacSecret == null ? new byte[0] : hmacSecret.getBytes(StandardCharsets.UTF_8);
+        if (secret.length < MINIMUM_HMAC_SECRET_LENGTH) {
+            throw new IllegalStateException("HMAC secret must be at least " + MINIMUM_HMAC_SECRET_LENGTH
+                    + " bytes long for " + algorithm);
+        }
+        return new OctetSequenceKey.Builder(secret)
+                .keyUse(KeyUse.SIGNATURE)
+                .algorithm(algorithm.getJwsAlgorithm())
+                .keyID(keyId)
+                .build();
+    }
+
+    private static JWK withThumbprintKeyId(JWK jwk) throws JOSEException, ParseException {
+        Map<String, Object> json = jwk.toJSONObject();
+        json.put("kid", jwk.computeThumbprint().toString());
+        return JWK.parse(json);
+    }
+
+    private static PublicKey readPublicKey(Resource resource, String keyAlgorithm) throws IOException, GeneralSecurityException {
+        return KeyFactory.getInstance(keyAlgorithm).generatePublic(new X509EncodedKeySpec(readPem(resource)));
+    }
+
+    private static PrivateKey readPrivateKey(Resource resource, String keyAlgorithm) throws IOException, GeneralSecurityException {
+        return KeyFactory.getInstance(keyAlgorithm).generatePrivate(new PKCS8EncodedKeySpec(readPem(resource)));
+    }
+
+    /**
+     * The X.509 encoding of an Ed25519 public key ends with the 32 bytes of the raw key.
+     */
+    private static byte[] rawEd25519PublicKey(Resource resource) throws IOException, GeneralSecurityException {
+        byte[] encoded = readPublicKey(resource, "Ed25519").getEncoded();
+        return Arrays.copyOfRange(encoded, encoded.length - ED25519_KEY_LENGTH, encoded.length);
+    }
+
+    private static byte[] rawEd25519PrivateKey(Resource resource) throws IOException, GeneralSecurityException {
+        return ((EdECPrivateKey) readPrivateKey(resource, "Ed25519")).getBytes()
+                .orElseThrow(() -> new GeneralSecurityException("Ed25519 private key is not extractable"));
+    }
+
+    private static byte[] readPem(Resource resource) throws IOException {
+        try (InputStream inputStream = resource.getInputStream()) {
+            String pem = new String(inputStream.readAllBytes(), StandardCharsets.US_ASCII);
+            String base64 = pem.replaceAll("-----(BEGIN|END) [A-Z ]+-----", "").replaceAll("\\s", "");
+            return Base64.getDecoder().decode(base64);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package dev.bhargav.security.jwt;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.crypto.factories.DefaultJWSSignerFactory;
+import com.nimbusds.jose.jwk.JWK;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Holds the JWT signing key and all verification keys indexed by their key ID ('kid').
+ * <p>
+ * The key set is immutable and swapped atomically, so the request path resolves a verifier with a single map lookup
+ * and without taking a lock. When created with {@link #watching}, the key directory is watched with a NIO
+ * WatchService and reloaded on every change:
+ * <ul>
+ *     <li>'&lt;kid&gt;.key.pem' + '&lt;kid&gt;.pub.pem' - key pair (RS256, ES256, EdDSA), the public file alone makes
+ *     a verification only key</li>
+ *     <li>'&lt;kid&gt;.secret' - shared secret (HS256)</li>
+ * </ul>
+ * The most recently modified private key (or secret) signs the new tokens. Keys removed from the directory keep
+ * verifying tokens for the retention period, which should be at least the access token lifetime plus the clock skew
+ * tolerated by the decoder.
+ */
+public class JwtKeyStore implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JwtKeyStore.class);
+
+    private static final String PRIVATE_KEY_SUFFIX = ".key.pem";
+
+    private static final String PUBLIC_KEY_SUFFIX = ".pub.pem";
+
+    private static final String SECRET_SUFFIX = ".secret";
+
+    private final JwtSigningAlgorithm algorithm;
+
+    private final Path directory;
+
+    private final Duration retention;
+
+    private final AtomicReference<KeySet> keySet = new AtomicReference<>();
+
+    private WatchService watchService;
+
+    private JwtKeyStore(JwtSigningAlgorithm algorithm, Path directory, Duration retention) {
+        this.algorithm = algorithm;
+        this.directory = directory;
+        this.retention = retention;
+    }
+
+    /**
+     * Creates a key store holding a single, static key.
+     *
+     * @param algorithm  - JwtSigningAlgorithm - Signing algorithm
+     * @param signingKey - JWK - Signing key
+     * @return JwtKeyStore
+     */
+    public static JwtKeyStore of(JwtSigningAlgorithm algorithm, JWK signingKey) {
+        JwtKeyStore keyStore = new JwtKeyStore(algorithm, null, Duration.ZERO);
+        SigningKey signing = keyStore.signingKey(signingKey);
+        keyStore.keySet.set(new KeySet(signing, Map.of(signingKey.getKeyID(), keyStore.verificationKey(signingKey, Long.MAX_VALUE))));
+        return keyStore;
+    }
+
+    /**
+     * Creates a key store loading its keys from the given directory and reloading them whenever the directory changes.
+     *
+     * @param algorithm - JwtSigningAlgorithm - Signing algorithm
+     * @param directory - Path - Key directory
+     * @param retention - Duration - How long keys removed from the directory keep verifying tokens
+     * @return JwtKeyStore
+     * @throws IOException if the directory cannot be read or watched
+     */
+    public static JwtKeyStore watching(JwtSigningAlgorithm algorithm, Path directory, Duration retention) throws IOException {
+        JwtKeyStore keyStore = new JwtKeyStore(algorithm, directory, retention);
+        keyStore.reload();
+        keyStore.watchService = FileSystems.getDefault().newWatchService();
+        directory.register(keyStore.watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        Thread watcher = new Thread(keyStore::watch, "jwt-key-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        return keyStore;
+    }
+
+    public JwtSigningAlgorithm getAlgorithm() {
+        return this.algorithm;
+    }
+
+    /**
+     * @return the key currently used for signing new tokens
+     */
+    public SigningKey signingKey() {
+        return this.keySet.get().signingKey();
+    }
+
+    /**
+     * Resolves the verifier of the given key ID. Tokens without 'kid' are verified with the current signing key.
+     *
+     * @param keyId - String - 'kid' header value, may be null
+     * @return JWSVerifier, null if the key is unknown or its retention has ended
+     */
+    public JWSVerifier verifier(String keyId) {
+        KeySet current = this.keySet.get();
+        VerificationKey key = current.verificationKeys().get(keyId != null ? keyId : current.signingKey().jwk().getKeyID());
+        if (key == null || key.validUntilMillis() < System.currentTimeMillis()) {
+            return null;
+        }
+        return key.verifier();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.watchService != null) {
+            this.watchService.close();
+        }
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey watchKey = this.watchService.take();
+                watchKey.pollEvents();
+                try {
+                    reload();
+                } catch (IOException | RuntimeException e) {
+                    // Files may be half written, the next event reloads again
+                    LOG.warn("Unable to reload the JWT keys from {}, keeping the previous key set", this.directory, e);
+                }
+                if (!watchKey.reset()) {
+                    LOG.error("JWT key directory {} is no longer accessible", this.directory);
+                    return;
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // key store closed
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized void reload() throws IOException {
+        Map<String, VerificationKey> keys = new HashMap<>();
+        JWK signing = null;
+        FileTime signingModified = null;
+        try (Stream<Path> files = Files.list(this.directory)) {
+            for (Path file : files.toList()) {
+                String fileName = file.getFileName().toString();
+                JWK jwk;
+                if (this.algorithm == JwtSigningAlgorithm.HS256 && fileName.endsWith(SECRET_SUFFIX)) {
+                    String keyId = fileName.substring(0, fileName.length() - SECRET_SUFFIX.length());
+                    jwk = JwkLoader.loadKey(this.algorithm, null, null,
+                            Files.readString(file, StandardCharsets.UTF_8).trim(), keyId);
+                } else if (this.algorithm != JwtSigningAlgorithm.HS256 && fileName.endsWith(PUBLIC_KEY_SUFFIX)) {
+                    String keyId = fileName.substring(0, fileName.length() - PUBLIC_KEY_SUFFIX.length());
+                    Path privateKey = this.directory.resolve(keyId + PRIVATE_KEY_SUFFIX);
+                    jwk = JwkLoader.loadKey(this.algorithm,
+                            Files.exists(privateKey) ? new FileSystemResource(privateKey) : null,
+                            new FileSystemResource(file), null, keyId);
+                } else {
+                    continue;
+                }
+                keys.put(jwk.getKeyID(), verificationKey(jwk, Long.MAX_VALUE));
+                if (jwk.isPrivate()) {
+                    FileTime modified = Files.getLastModifiedTime(this.algorithm == JwtSigningAlgorithm.HS256
+                            ? file : this.directory.resolve(jwk.getKeyID() + PRIVATE_KEY_SUFFIX));
+                    if (signingModified == null || modified.compareTo(signingModified) > 0) {
+                        signing = jwk;
+                        signingModified = modified;
+                    }
+                }
+            }
+        }
+        if (signing == null) {
+            throw new IllegalStateException("No " + this.algorithm + " signing key found in " + this.directory);
+        }
+        KeySet previous = this.keySet.get();
+        if (previous != null) {
+            long now = System.currentTimeMillis();
+            previous.verificationKeys().forEach((keyId, key) -> {
+                if (!keys.containsKey(keyId)) {
+                    long validUntil = key.validUntilMillis() != Long.MAX_VALUE
+                            ? key.validUntilMillis() : now + this.retention.toMillis();
+                    if (validUntil > now) {
+                        keys.put(keyId, new VerificationKey(key.jwk(), key.verifier(), validUntil));
+                    }
+                }
+            });
+        }
+        this.keySet.set(new KeySet(signingKey(signing), Map.copyOf(keys)));
+        LOG.info("Loaded {} JWT key(s) from {}, signing with kid '{}'", keys.size(), this.directory, signing.getKeyID());
+    }
+
+    private SigningKey signingKey(JWK jwk) {
+        try {
+            return new SigningKey(jwk, new DefaultJWSSignerFactory().createJWSSigner(jwk, this.algorithm.getJwsAlgorithm()));
+        } catch (JOSEException e) {
+            throw new IllegalStateException("Unable to create the JWT signer for kid '" + jwk.getKeyID() + "'", e);
+        }
+    }
+
+    private VerificationKey verificationKey(JWK jwk, long validUntilMillis) {
+        try {
+            return new VerificationKey(jwk, JwkJwtProcessor.createVerifier(jwk), validUntilMillis);
+        } catch (JOSEException e) {
+            throw new IllegalStateException("Unable to create the JWT verifier for kid '" + jwk.getKeyID() + "'", e);
+        }
+    }
+
+    /**
+     * Key used for signing new tokens along with its signer.
+     */
+    public record SigningKey(JWK jwk, JWSSigner signer) {
+    }
+
+    private record VerificationKey(JWK jwk, JWSVerifier verifier, long validUntilMillis) {
+    }
+
+    private record KeySet(SigningKey signingKey, Map<String, VerificationKey> verificationKeys) {
+    }
+}
@@ -0,0 +1,39 @@
+package dev.bhargav.security.jwt;
+
+import com.nimbusds.jose.JWSAlgorithm;
+
+import java.util.Arrays;
+
+/**
+ * JWS algorithms supported for signing and verifying the access tokens, selected by 'jwt.signing.algorithm'.
+ */
+public enum JwtSigningAlgorithm {
+
+    RS256(JWSAlgorithm.RS256),
+    ES256(JWSAlgorithm.ES256),
+    EDDSA(JWSAlgorithm.EdDSA),
+    HS256(JWSAlgorithm.HS256);
+
+    public final JWSAlgorithm jwsAlgorithm;
+
+    JwtSigningAlgorithm(JWSAlgorithm jwsAlgorithm) {
+        this.jwsAlgorithm = jwsAlgorithm;
+    }
+
+    public JWSAlgorithm getJwsAlgorithm() {
+        return this.jwsAlgorithm;
+    }
+
+    /**
+     * Resolves the algorithm from its JWS name (RS256, ES256, EdDSA, HS256), ignoring case.
+     *
+     * @param name - String - JWS algorithm name
+     * @return JwtSigningAlgorithm
+     */
+    public static JwtSigningAlgorithm fromName(String name) {
+        return Arrays.stream(values())
+                .filter(algorithm -> algorithm.jwsAlgorithm.getName().equalsIgnoreCase(name.trim()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unsupported JWT signing algorithm: " + name));
+    }
+}
@@ -0,0 +1,32 @@
+package dev.bhargav.security.jwt;
+
+import dev.bhargav.security.service.TokenRevocationService;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+/**
+ * JwtDecoder rejecting revoked tokens. It sits in front of the caching decoder, so that a token revoked after it was
+ * cached is rejected as well.
+ */
+public class RevocationCheckingJwtDecoder implements JwtDecoder {
+
+    private final JwtDecoder delegate;
+
+    private final TokenRevocationService tokenRevocationService;
+
+    public RevocationCheckingJwtDecoder(JwtDecoder delegate, TokenRevocationService tokenRevocationService) {
+        this.delegate = delegate;
+        this.tokenRevocationService = tokenRevocationService;
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        Jwt jwt = this.delegate.decode(token);
+        if (this.tokenRevocationService.isRevoked(jwt)) {
+            throw new BadJwtException("An error occurred while attempting to decode the Jwt: Token has been revoked");
+        }
+        return jwt;
+    }
+}
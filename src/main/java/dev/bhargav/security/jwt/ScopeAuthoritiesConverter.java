@@ -0,0 +1,72 @@
+package dev.bhargav.security.jwt;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+/**
+ * Replacement of the default JwtAuthenticationConverter which converts the 'scope' claim into 'SCOPE_' prefixed
+ * authorities just like it does, but keeps one immutable authority set per distinct scope string instead of parsing
+ * the claim and allocating a new collection on every request. The number of interned scope strings is bounded,
+ * beyond it the authorities are built per request.
+ */
+public class ScopeAuthoritiesConverter implements Converter<Jwt, AbstractAuthenticationToken> {
+
+    private static final String SCOPE_CLAIM = "scope";
+
+    private static final String AUTHORITY_PREFIX = "SCOPE_";
+
+    private final ConcurrentMap<String, Set<GrantedAuthority>> authoritiesByScope = new ConcurrentHashMap<>();
+
+    private final int maximumSize;
+
+    /**
+     * @param maximumSize - int - Maximum number of distinct scope strings kept
+     */
+    public ScopeAuthoritiesConverter(int maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    @Override
+    public AbstractAuthenticationToken convert(Jwt jwt) {
+        return new JwtAuthenticationToken(jwt, authorities(jwt.getClaims().get(SCOPE_CLAIM)), jwt.getSubject());
+    }
+
+    private Set<GrantedAuthority> authorities(Object scope) {
+        String scopes;
+        if (scope instanceof String scopeString) {
+            scopes = scopeString;
+        } else if (scope instanceof Collection<?> scopeCollection) {
+            scopes = scopeCollection.stream().map(String::valueOf).collect(Collectors.joining(" "));
+        } else {
+            return Set.of();
+        }
+        Set<GrantedAuthority> authorities = this.authoritiesByScope.get(scopes);
+        if (authorities != null) {
+            return authorities;
+        }
+        authorities = parse(scopes);
+        if (this.authoritiesByScope.size() < this.maximumSize) {
+            Set<GrantedAuthority> existing = this.authoritiesByScope.putIfAbsent(scopes, authorities);
+            return existing != null ? existing : authorities;
+        }
+        return authorities;
+    }
+
+    private static Set<GrantedAuthority> parse(String scopes) {
+        return Set.copyOf(Arrays.stream(scopes.split(" "))
+                .filter(scope -> !scope.isBlank())
+                .map(scope -> new SimpleGrantedAuthority(AUTHORITY_PREFIX + scope))
+                .collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,20 @@
+package dev.bhargav.security.model;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Builder
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AccountLookupRequest {
+
+    @NotEmpty(message = "accountNumbers cannot be empty")
+    private List<@NotNull Integer> accountNumbers;
+}
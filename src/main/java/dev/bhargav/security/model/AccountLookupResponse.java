@@ -0,0 +1,27 @@
+package dev.bhargav.security.model;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Builder
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonPropertyOrder({"accounts", "missing"})
+public class AccountLookupResponse {
+
+    /**
+     * Found accounts, without their transactions, in the order of the request. Duplicates are returned once.
+     */
+    private List<AccountDto> accounts;
+
+    /**
+     * Requested account numbers which do not exist, in the order of the request.
+     */
+    private List<Integer> missing;
+}
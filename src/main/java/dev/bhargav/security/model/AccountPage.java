@@ -0,0 +1,13 @@
+package dev.bhargav.security.model;
+
+import java.util.List;
+
+/**
+ * One page of an account listing ordered by account number.
+ *
+ * @param accounts   - List - Accounts of the page
+ * @param nextCursor - Integer - Account number to pass as 'after' for the next page, null on the last page
+ * @param eTag       - String - Strong entity tag of the page, changes when any of its accounts changes
+ */
+public record AccountPage(List<AccountDto> accounts, Integer nextCursor, String eTag) {
+}
@@ -0,0 +1,10 @@
+package dev.bhargav.security.model;
+
+/**
+ * Version of an account, used to answer conditional requests without loading the account transactions.
+ *
+ * @param eTag         - String - Strong entity tag, changes with every change of the account
+ * @param lastModified - long - Time of the latest change in epoch milliseconds, -1 if unknown
+ */
+public record AccountVersion(String eTag, long lastModified) {
+}
@@ -0,0 +1,32 @@
+package dev.bhargav.security.model;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Builder
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchTransactionRequest {
+
+    /**
+     * ALL_OR_NOTHING (default) commits the postings only if every one of them can be applied, BEST_EFFORT commits the
+     * postings which can be applied and rejects the others.
+     */
+    @Builder.Default
+    private BatchMode mode = BatchMode.ALL_OR_NOTHING;
+
+    @NotEmpty(message = "postings cannot be empty")
+    private List<@Valid TransactionPosting> postings;
+
+    public enum BatchMode {
+        ALL_OR_NOTHING,
+        BEST_EFFORT
+    }
+}
@@ -0,0 +1,27 @@
+package dev.bhargav.security.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+import java.util.List;
+
+@Builder
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"timestamp", "mode", "committed", "applied", "rejected", "results"})
+public class BatchTransactionResponse {
+
+    private Date timestamp;
+    private BatchTransactionRequest.BatchMode mode;
+    private boolean committed;
+    private int applied;
+    private int rejected;
+    private List<PostingResult> results;
+}
@@ -0,0 +1,42 @@
+package dev.bhargav.security.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one posting of a batch, in the order of the request.
+ */
+@Builder
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"index", "accountNumber", "status", "accountBalance", "transaction", "error"})
+public class PostingResult {
+
+    private Integer index;
+    private Integer accountNumber;
+    private PostingStatus status;
+    private Long accountBalance;
+    private Transaction transaction;
+    private String error;
+
+    public enum PostingStatus {
+        /**
+         * Applied and committed.
+         */
+        APPLIED,
+        /**
+         * Could not be applied, see error.
+         */
+        REJECTED,
+        /**
+         * Could be applied but was not, because another posting of the ALL_OR_NOTHING batch was rejected.
+         */
+        SKIPPED
+    }
+}
@@ -12,9 +12,13 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @NoArgsConstructor
 @JsonInclude(JsonInclude.Include.NON_NULL)
-@JsonPropertyOrder({"type", "ts", "balance", "transactionAmt", "error"})
+@JsonPropertyOrder({"sequence", "type", "ts", "balance", "transactionAmt", "error"})
 public class Transaction {
 
+    /**
+     * Position of the event in the account history, starting at 1 and increasing by one with every event.
+     */
+    private Long sequence;
     private String type;
     private String ts;
     private Long transactionAmt;
@@ -0,0 +1,12 @@
+package dev.bhargav.security.model;
+
+import java.util.List;
+
+/**
+ * One page of an account transaction history, latest event first.
+ *
+ * @param transactions - List - Events of the page
+ * @param nextCursor   - Long - Sequence number to pass as 'before' for the next (older) page, null on the last page
+ */
+public record TransactionPage(List<Transaction> transactions, Long nextCursor) {
+}
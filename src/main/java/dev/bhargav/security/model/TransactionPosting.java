@@ -0,0 +1,33 @@
+package dev.bhargav.security.model;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One deposit or withdrawal of a batch.
+ */
+@Builder
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TransactionPosting {
+
+    @NotNull(message = "accountNumber cannot be null")
+    private Integer accountNumber;
+
+    @NotNull(message = "type cannot be null")
+    private PostingType type;
+
+    @NotNull(message = "amount cannot be null")
+    @Positive(message = "amount must be positive")
+    private Integer amount;
+
+    public enum PostingType {
+        DEPOSIT,
+        WITHDRAWAL
+    }
+}
@@ -0,0 +1,84 @@
+package dev.bhargav.security.ratelimit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.bhargav.security.exception.ExceptionResponse;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Locale;
+
+/**
+ * Rejects requests to the rate limited authentication paths with 429 once the client runs out of tokens, before the
+ * authentication filters get to run any password hashing. The token endpoint is limited per remote address and per
+ * Basic Auth username, the signup endpoint per remote address only since its username is in the request body.
+ * <p>
+ * Not a bean on purpose, Spring Boot would otherwise register it for every request of the servlet container.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final String BASIC_PREFIX = "basic ";
+
+    private final RateLimiter rateLimiter;
+
+    private final ObjectMapper objectMapper;
+
+    public RateLimitFilter(RateLimiter rateLimiter, ObjectMapper objectMapper) {
+        this.rateLimiter = rateLimiter;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !this.rateLimiter.isLimited(request.getServletPath());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String path = request.getServletPath();
+        String addressKey = "ip:" + request.getRemoteAddr();
+        String username = basicAuthUsername(request);
+        long retryAfter = username == null ? this.rateLimiter.tryAcquire(path, addressKey)
+                : this.rateLimiter.tryAcquire(path, addressKey, "user:" + username);
+        if (retryAfter > 0) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            this.objectMapper.writeValue(response.getOutputStream(), ExceptionResponse.builder()
+                    .errorMessage("Too many requests, please retry later")
+                    .requestedURI(request.getRequestURI())
+                    .timestamp(LocalDateTime.now())
+                    .build());
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * @return the normalized username of the Basic Auth header, null if there is none or it cannot be decoded
+     */
+    private static String basicAuthUsername(HttpServletRequest request) {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header == null || !header.regionMatches(true, 0, BASIC_PREFIX, 0, BASIC_PREFIX.length())) {
+            return null;
+        }
+        try {
+            String credentials = new String(Base64.getDecoder().decode(header.substring(BASIC_PREFIX.length()).trim()),
+                    StandardCharsets.UTF_8);
+            int separator = credentials.indexOf(':');
+            return separator < 0 ? null : credentials.substring(0, separator).trim().toLowerCase(Locale.ROOT);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
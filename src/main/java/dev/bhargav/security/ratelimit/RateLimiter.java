@@ -0,0 +1,136 @@
+package dev.bhargav.security.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-client token buckets for the authentication endpoints, one set of buckets per limited path.
+ * <p>
+ * A bucket is a single AtomicLong holding the time at which it will be full again (the generic cell rate algorithm
+ * form of a token bucket), so taking a token is one compare-and-set and needs no lock nor refill thread. Buckets
+ * which are full again are idle and get evicted by a scheduled sweep.
+ */
+@Component
+public class RateLimiter {
+
+    public static final String TOKEN_PATH = "/api/auth/token";
+
+    public static final String SIGNUP_PATH = "/api/auth/signup";
+
+    private final Map<String, Limit> limits;
+
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    private final LongSupplier nanoTime;
+
+    @Autowired
+    public RateLimiter(@Value("${auth.rate-limit.token.capacity}") long tokenCapacity,
+                       @Value("${auth.rate-limit.token.refill-per-second}") double tokenRefillPerSecond,
+                       @Value("${auth.rate-limit.signup.capacity}") long signupCapacity,
+                       @Value("${auth.rate-limit.signup.refill-per-second}") double signupRefillPerSecond,
+                       MeterRegistry meterRegistry) {
+        this(tokenCapacity, tokenRefillPerSecond, signupCapacity, signupRefillPerSecond, meterRegistry, System::nanoTime);
+    }
+
+    /**
+     * @param nanoTime - LongSupplier - Monotonic time source in nanoseconds, System.nanoTime() outside of tests
+     */
+    RateLimiter(long tokenCapacity, double tokenRefillPerSecond, long signupCapacity, double signupRefillPerSecond,
+                MeterRegistry meterRegistry, LongSupplier nanoTime) {
+        this.nanoTime = nanoTime;
+        this.limits = Map.of(
+                TOKEN_PATH, new Limit(tokenCapacity, tokenRefillPerSecond, TOKEN_PATH, meterRegistry),
+                SIGNUP_PATH, new Limit(signupCapacity, signupRefillPerSecond, SIGNUP_PATH, meterRegistry));
+    }
+
+    /**
+     * @param path - String - Request path
+     * @return true if the path is rate limited
+     */
+    public boolean isLimited(String path) {
+        return this.limits.containsKey(path);
+    }
+
+    /**
+     * Takes a token from the bucket of every given client key, the request is allowed only if none of the buckets is
+     * empty. Tokens taken before an empty bucket was found are not given back, so a client hammering with many
+     * usernames still drains the bucket of its address.
+     *
+     * @param path       - String - Rate limited path
+     * @param clientKeys - String[] - Keys identifying the client, e.g. "ip:10.0.0.1", "user:alice"
+     * @return 0 if allowed, otherwise the number of seconds after which a token is available again
+     */
+    public long tryAcquire(String path, String... clientKeys) {
+        Limit limit = this.limits.get(path);
+        long now = this.nanoTime.getAsLong();
+        long waitNanos = 0L;
+        for (String clientKey : clientKeys) {
+            AtomicLong bucket = this.buckets.computeIfAbsent(path + '|' + clientKey, key -> new AtomicLong(now));
+            waitNanos = Math.max(waitNanos, take(bucket, limit, now));
+        }
+        if (waitNanos == 0L) {
+            limit.allowed.increment();
+            return 0L;
+        }
+        limit.rejected.increment();
+        return Math.max(1L, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+    }
+
+    /**
+     * Evicts the buckets which have been full again for a while, i.e. of clients that went quiet.
+     */
+    @Scheduled(fixedDelayString = "${auth.rate-limit.idle-eviction-interval-ms}")
+    public void evictIdleBuckets() {
+        long now = this.nanoTime.getAsLong();
+        this.buckets.values().removeIf(bucket -> bucket.get() - now < 0);
+    }
+
+    /**
+     * @return 0 if a token was taken, otherwise the nanoseconds until one is available
+     */
+    private static long take(AtomicLong bucket, Limit limit, long now) {
+        while (true) {
+            long fullAt = bucket.get();
+            long newFullAt = Math.max(fullAt - now, 0L) + now + limit.nanosPerToken;
+            long overflow = newFullAt - now - limit.burstNanos;
+            if (overflow > 0) {
+                return overflow;
+            }
+            if (bucket.compareAndSet(fullAt, newFullAt)) {
+                return 0L;
+            }
+        }
+    }
+
+    private static final class Limit {
+
+        private final long nanosPerToken;
+
+        private final long burstNanos;
+
+        private final Counter allowed;
+
+        private final Counter rejected;
+
+        private Limit(long capacity, double refillPerSecond, String path, MeterRegistry meterRegistry) {
+            this.nanosPerToken = (long) (TimeUnit.SECONDS.toNanos(1) / refillPerSecond);
+            this.burstNanos = this.nanosPerToken * capacity;
+            this.allowed = Counter.builder("auth.rate-limit.requests")
+                    .tag("path", path).tag("outcome", "allowed")
+                    .register(meterRegistry);
+            this.rejected = Counter.builder("auth.rate-limit.requests")
+                    .tag("path", path).tag("outcome", "rejected")
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package dev.bhargav.security.repository;
+
+import dev.bhargav.security.entity.AccountNumberSequence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface AccountNumberSequenceRepository extends JpaRepository<AccountNumberSequence, String> {
+
+    @Query(value = "select next_block from account_number_sequence where name = ?1 for update", nativeQuery = true)
+    Long findNextBlockForUpdate(String name);
+
+    /**
+     * Creates the sequence unless another node has just done so.
+     */
+    @Modifying
+    @Query(value = "insert ignore into account_number_sequence (name, next_block) values (?1, 0)", nativeQuery = true)
+    int insertIfAbsent(String name);
+
+    @Modifying
+    @Query(value = "update account_number_sequence set next_block = ?2 where name = ?1", nativeQuery = true)
+    int updateNextBlock(String name, long nextBlock);
+}
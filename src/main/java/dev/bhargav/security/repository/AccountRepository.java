@@ -1,18 +1,90 @@
 package dev.bhargav.security.repository;
 
 import dev.bhargav.security.entity.Account;
+import jakarta.persistence.QueryHint;
 import jakarta.transaction.Transactional;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
 @Repository
 public interface AccountRepository extends JpaRepository<Account, Long> {
 
     @Query(value = "select * from account where acc_no = ?1", nativeQuery = true)
     Account findByAccNo(Integer accountNumber);
 
+    /**
+     * Keyset page of the account summaries following the given account number.
+     */
+    List<AccountSummary> findByAccNoGreaterThanOrderByAccNoAsc(Integer accNo, Limit limit);
+
+    /**
+     * Account summaries of the given account numbers, in no particular order. Unknown account numbers are skipped.
+     */
+    List<AccountSummary> findByAccNoIn(Collection<Integer> accNos);
+
+    /**
+     * Streams every account through a forward-only server side cursor ('useCursorFetch' of the datasource url)
+     * fetching 1000 rows at a time. Must be consumed, and closed, within a transaction.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    Stream<Account> streamAllByOrderByAccNoAsc();
+
+    @Query(value = "select * from account where acc_no = ?1 for update", nativeQuery = true)
+    Account findByAccNoForUpdate(Integer accountNumber);
+
+    /**
+     * Loads and locks the accounts in account number order, the order in which every multi-account writer takes the
+     * row locks so that they cannot deadlock each other.
+     */
+    @Query(value = "select * from account where acc_no in (?1) order by acc_no for update", nativeQuery = true)
+    List<Account> findByAccNoInForUpdate(Collection<Integer> accountNumbers);
+
+    /**
+     * Atomically credits the account and takes the next ledger sequence number.
+     *
+     * @return number of updated rows, 0 if the account does not exist or is not migrated to the ledger yet
+     */
+    @Modifying
+    @Query(value = "update account set balance = coalesce(balance, 0) + ?2, last_sequence = last_sequence + 1, "
+            + "modified_by = ?3, modified_date = ?4 where acc_no = ?1 and last_sequence is not null", nativeQuery = true)
+    int deposit(Integer accountNumber, long amount, String modifiedBy, Date modifiedDate);
+
+    /**
+     * Atomically debits the account if its balance covers the amount and takes the next ledger sequence number.
+     *
+     * @return number of updated rows, 0 if the balance is insufficient, the account does not exist or is not
+     * migrated to the ledger yet
+     */
+    @Modifying
+    @Query(value = "update account set balance = coalesce(balance, 0) - ?2, last_sequence = last_sequence + 1, "
+            + "modified_by = ?3, modified_date = ?4 where acc_no = ?1 and coalesce(balance, 0) >= ?2 "
+            + "and last_sequence is not null", nativeQuery = true)
+    int withdraw(Integer accountNumber, long amount, String modifiedBy, Date modifiedDate);
+
+    /**
+     * Atomically changes the branch and takes the next ledger sequence number.
+     *
+     * @return number of updated rows, 0 if the account does not exist or is not migrated to the ledger yet
+     */
+    @Modifying
+    @Query(value = "update account set branch = ?2, last_sequence = last_sequence + 1, modified_by = ?3, "
+            + "modified_date = ?4 where acc_no = ?1 and last_sequence is not null", nativeQuery = true)
+    int updateBranch(Integer accountNumber, String branch, String modifiedBy, Date modifiedDate);
+
     @Modifying
     @Transactional
     @Query(value = "delete from account where acc_no = ?1", nativeQuery = true)
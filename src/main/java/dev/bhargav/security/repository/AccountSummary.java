@@ -0,0 +1,23 @@
+package dev.bhargav.security.repository;
+
+import java.util.Date;
+
+/**
+ * Closed projection of the account columns shown in listings, queries returning it select only these columns.
+ */
+public interface AccountSummary {
+
+    Long getId();
+
+    Integer getAccNo();
+
+    String getHolderName();
+
+    Date getStartDate();
+
+    String getBranch();
+
+    Long getBalance();
+
+    Long getLastSequence();
+}
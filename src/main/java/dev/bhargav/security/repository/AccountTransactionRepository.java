@@ -0,0 +1,41 @@
+package dev.bhargav.security.repository;
+
+import dev.bhargav.security.entity.AccountTransaction;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface AccountTransactionRepository extends JpaRepository<AccountTransaction, AccountTransaction.AccountTransactionId> {
+
+    /**
+     * Events up to the given sequence number, oldest first, the history of an account snapshot.
+     */
+    List<AccountTransaction> findByAccNoAndSequenceLessThanEqualOrderBySequenceAsc(Integer accNo, Long last);
+
+    /**
+     * Latest events up to the given sequence number, latest first.
+     */
+    List<AccountTransaction> findByAccNoAndSequenceLessThanEqualOrderBySequenceDesc(Integer accNo, Long last, Limit limit);
+
+    /**
+     * Page of the events older than the 'before' sequence number within [from, to), latest first.
+     */
+    List<AccountTransaction> findByAccNoAndSequenceLessThanAndTsGreaterThanEqualAndTsLessThanOrderBySequenceDesc(
+            Integer accNo, Long before, LocalDateTime from, LocalDateTime to, Limit limit);
+
+    /**
+     * Events following the given sequence number, oldest first, to replay an event stream.
+     */
+    List<AccountTransaction> findByAccNoAndSequenceGreaterThanOrderBySequenceAsc(Integer accNo, Long after, Limit limit);
+
+    @Modifying
+    @Query("delete from AccountTransaction t where t.accNo = :accNo")
+    int deleteByAccNo(@Param("accNo") Integer accNo);
+}
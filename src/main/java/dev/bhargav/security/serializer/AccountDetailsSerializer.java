@@ -1,9 +1,9 @@
 package dev.bhargav.security.serializer;
 
-import dev.bhargav.security.builder.AccountTransactionEventBuilder;
 import dev.bhargav.security.entity.Account;
 import dev.bhargav.security.model.AccountDto;
-import org.apache.commons.lang3.RandomStringUtils;
+import dev.bhargav.security.service.AccountNumberAllocator;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
@@ -12,19 +12,24 @@ import java.util.Date;
 @Component
 public class AccountDetailsSerializer {
 
+    @Autowired
+    AccountNumberAllocator accountNumberAllocator;
+
     @Value("${SERVICE_ACCOUNT}")
     private String serviceAccount;
 
     public Account serializeAccount(AccountDto accountDto) {
+        Date now = new Date();
         return Account.builder()
-                .accNo(Integer.valueOf(RandomStringUtils.randomNumeric(5, 5)))
+                .accNo(this.accountNumberAllocator.allocate())
                 .holderName(accountDto.getAccountHolderName())
                 .startDate(new Date())
                 .branch(accountDto.getAccountBranch())
                 .balance(0L)
-                .transactions(AccountTransactionEventBuilder.createAccountSuccessfulEvent())
+                .lastSequence(1L)
                 .createdBy(this.serviceAccount)
-                .createdDate(new Date())
+                .createdDate(now)
+                .modifiedDate(now)
                 .build();
     }
 }
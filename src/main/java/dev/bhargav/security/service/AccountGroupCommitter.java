@@ -0,0 +1,351 @@
+package dev.bhargav.security.service;
+
+import dev.bhargav.security.builder.AccountTransactionEventBuilder;
+import dev.bhargav.security.cache.AccountCache;
+import dev.bhargav.security.config.AccountLedgerMigration;
+import dev.bhargav.security.constant.AccountConstants;
+import dev.bhargav.security.deserializer.AccountDetailsDeserializer;
+import dev.bhargav.security.entity.Account;
+import dev.bhargav.security.entity.AccountTransaction;
+import dev.bhargav.security.events.AccountEventHub;
+import dev.bhargav.security.exception.InsufficientAccountBalanceException;
+import dev.bhargav.security.exception.ResourceNotFoundException;
+import dev.bhargav.security.model.AccountDto;
+import dev.bhargav.security.repository.AccountRepository;
+import dev.bhargav.security.repository.AccountTransactionRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Group commit of deposits and withdrawals (opt-in through 'account.group-commit.enabled').
+ * <p>
+ * Requests are queued to one of a fixed number of stripes chosen by account number, every stripe has a single writer
+ * thread, so the requests of an account are applied in arrival order. The writer collects the requests arriving
+ * within a short window, up to a maximum batch size, and applies the whole batch in one transaction: per account one
+ * locked read, the balance checks in order, one balance update and the ledger rows inserted as a JDBC batch. Callers
+ * get their result once the transaction has committed. When a stripe queue is full, or the committer is shutting
+ * down, the request is applied on its own by AccountLedgerWriter instead. A writer thread which dies is replaced, and
+ * callers give up waiting after 'account.group-commit.await-timeout-ms'.
+ */
+@Component
+public class AccountGroupCommitter implements InitializingBean, DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AccountGroupCommitter.class);
+
+    @Autowired
+    AccountRepository accountRepository;
+
+    @Autowired
+    AccountCache accountCache;
+
+    @Autowired
+    AccountEventHub accountEventHub;
+
+    @Autowired
+    AccountTransactionRepository accountTransactionRepository;
+
+    @Autowired
+    AccountLedgerMigration accountLedgerMigration;
+
+    @Autowired
+    AccountLedgerWriter accountLedgerWriter;
+
+    @Autowired
+    AccountDetailsDeserializer accountDetailsDeserializer;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Value("${SERVICE_ACCOUNT}")
+    private String serviceAccount;
+
+    @Value("${account.group-commit.enabled}")
+    private boolean enabled;
+
+    @Value("${account.group-commit.stripes}")
+    private int stripeCount;
+
+    @Value("${account.group-commit.queue-capacity}")
+    private int queueCapacity;
+
+    @Value("${account.group-commit.max-batch-size}")
+    private int maxBatchSize;
+
+    @Value("${account.group-commit.max-wait-micros}")
+    private long maxWaitMicros;
+
+    @Value("${account.group-commit.await-timeout-ms}")
+    private long awaitTimeout;
+
+    private final List<BlockingQueue<BalanceChange>> stripes = new ArrayList<>();
+
+    private final List<Thread> writers = new ArrayList<>();
+
+    private volatile boolean running;
+
+    private DistributionSummary batchSize;
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    public AccountDto deposit(Integer accNo, int deposit) throws ResourceNotFoundException {
+        BalanceChange change = new BalanceChange(accNo, deposit, false);
+        if (!enqueue(change)) {
+            return this.accountLedgerWriter.deposit(accNo, deposit);
+        }
+        try {
+            return await(change);
+        } catch (InsufficientAccountBalanceException e) {
+            // only withdrawals are checked against the balance
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public AccountDto withdraw(Integer accNo, int withdrawal) throws ResourceNotFoundException, InsufficientAccountBalanceException {
+        BalanceChange change = new BalanceChange(accNo, withdrawal, true);
+        if (!enqueue(change)) {
+            return this.accountLedgerWriter.withdraw(accNo, withdrawal);
+        }
+        return await(change);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!this.enabled) {
+            return;
+        }
+        this.batchSize = DistributionSummary.builder("account.group-commit.batch.size")
+                .description("Deposits and withdrawals applied per transaction")
+                .register(this.meterRegistry);
+        this.running = true;
+        for (int i = 0; i < this.stripeCount; i++) {
+            this.stripes.add(new ArrayBlockingQueue<>(this.queueCapacity));
+            this.writers.add(null);
+            startWriter(i);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        this.running = false;
+        synchronized (this.writers) {
+            this.writers.forEach(Thread::interrupt);
+        }
+        this.stripes.forEach(queue -> failQueued(queue, new IllegalStateException("Shutting down")));
+    }
+
+    /**
+     * Starts the writer thread of a stripe. A writer ending with an uncaught Throwable fails the changes queued on its
+     * stripe and is replaced as long as the committer is running, so that no caller is left waiting on a dead stripe.
+     */
+    private void startWriter(int stripe) {
+        BlockingQueue<BalanceChange> queue = this.stripes.get(stripe);
+        Thread writer = new Thread(() -> write(queue), "account-group-commit-" + stripe);
+        writer.setDaemon(true);
+        writer.setUncaughtExceptionHandler((thread, e) -> {
+            LOG.error("Group commit writer {} died", thread.getName(), e);
+            failQueued(queue, e);
+            if (this.running) {
+                startWriter(stripe);
+            }
+        });
+        synchronized (this.writers) {
+            this.writers.set(stripe, writer);
+        }
+        writer.start();
+    }
+
+    /**
+     * Queues the change to its stripe.
+     *
+     * @return false if the change has to be applied directly, because the stripe is full or the committer stopped
+     */
+    private boolean enqueue(BalanceChange change) {
+        if (!this.running) {
+            return false;
+        }
+        BlockingQueue<BalanceChange> queue = stripe(change.accNo);
+        if (!queue.offer(change)) {
+            return false;
+        }
+        // destroy() may have drained the queue before the offer, take the change back if no writer will see it
+        return this.running || !queue.remove(change);
+    }
+
+    private AccountDto await(BalanceChange change) throws ResourceNotFoundException, InsufficientAccountBalanceException {
+        try {
+            return change.await(this.awaitTimeout);
+        } catch (TimeoutException e) {
+            if (stripe(change.accNo).remove(change)) {
+                throw new IllegalStateException("Timed out waiting for the group commit, the change was not applied", e);
+            }
+            throw new IllegalStateException("Timed out waiting for the group commit, the change may still be applied", e);
+        }
+    }
+
+    private static void failQueued(BlockingQueue<BalanceChange> queue, Throwable cause) {
+        List<BalanceChange> queued = new ArrayList<>();
+        queue.drainTo(queued);
+        queued.forEach(change -> change.result.completeExceptionally(cause));
+    }
+
+    private BlockingQueue<BalanceChange> stripe(Integer accNo) {
+        return this.stripes.get(Math.floorMod(accNo.hashCode(), this.stripeCount));
+    }
+
+    private void write(BlockingQueue<BalanceChange> queue) {
+        List<BalanceChange> batch = new ArrayList<>(this.maxBatchSize);
+        while (this.running) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(this.maxWaitMicros);
+                while (batch.size() < this.maxBatchSize) {
+                    BalanceChange change = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (change == null) {
+                        break;
+                    }
+                    batch.add(change);
+                }
+                commit(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.forEach(change -> change.result.completeExceptionally(e));
+                return;
+            } catch (Throwable e) {
+                // the batch callers must not wait on a writer about to die, the uncaught handler replaces the writer
+                batch.forEach(change -> change.result.completeExceptionally(e));
+                throw e;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<BalanceChange> batch) {
+        // accounts are locked in account number order, like findByAccNoInForUpdate does
+        Map<Integer, List<BalanceChange>> changesByAccNo = new TreeMap<>();
+        batch.forEach(change -> changesByAccNo.computeIfAbsent(change.accNo, key -> new ArrayList<>()).add(change));
+        try {
+            this.transactionTemplate.executeWithoutResult(status -> changesByAccNo.forEach(this::apply));
+        } catch (Throwable e) {
+            LOG.warn("Group commit of {} balance changes failed", batch.size(), e);
+            batch.forEach(change -> change.result.completeExceptionally(e));
+            return;
+        }
+        this.batchSize.record(batch.size());
+        batch.forEach(BalanceChange::complete);
+    }
+
+    /**
+     * Applies the changes of one account in arrival order. Withdrawals not covered by the running balance fail alone,
+     * the other changes of the batch go through.
+     */
+    private void apply(Integer accNo, List<BalanceChange> changes) {
+        Account account = this.accountRepository.findByAccNoForUpdate(accNo);
+        if (account == null) {
+            changes.forEach(change -> change.failure = new ResourceNotFoundException(AccountConstants.ACCOUNT_NOT_FOUND.getMessage()));
+            return;
+        }
+        if (account.getLastSequence() == null) {
+            account.setLastSequence(this.accountLedgerMigration.migrate(accNo));
+        }
+        long balance = account.getBalance() != null ? account.getBalance() : 0L;
+        List<AccountTransaction> events = new ArrayList<>(changes.size());
+        for (BalanceChange change : changes) {
+            if (change.withdrawal && change.amount > balance) {
+                change.failure = new InsufficientAccountBalanceException(AccountConstants.INSUFFICIENT_ACCOUNT_BALANCE.getMessage());
+                continue;
+            }
+            balance = change.withdrawal ? balance - change.amount : balance + change.amount;
+            account.setBalance(balance);
+            account.setLastSequence(account.getLastSequence() + 1);
+            AccountTransaction event = change.withdrawal
+                    ? AccountTransactionEventBuilder.createWithdrawalSuccessfulEvent(account, change.amount)
+                    : AccountTransactionEventBuilder.createDepositSuccessfulEvent(account, change.amount);
+            events.add(event);
+            change.success = this.accountDetailsDeserializer.deserializeAccount(account, List.of(event));
+        }
+        if (!events.isEmpty()) {
+            account.setModifiedDate(new Date());
+            account.setModifiedBy(this.serviceAccount);
+            this.accountTransactionRepository.saveAll(events);
+            this.accountCache.putAfterCommit(account);
+            this.accountEventHub.publishAfterCommit(events);
+        }
+    }
+
+    private static final class BalanceChange {
+
+        private final Integer accNo;
+
+        private final int amount;
+
+        private final boolean withdrawal;
+
+        private final CompletableFuture<AccountDto> result = new CompletableFuture<>();
+
+        private AccountDto success;
+
+        private Exception failure;
+
+        private BalanceChange(Integer accNo, int amount, boolean withdrawal) {
+            this.accNo = accNo;
+            this.amount = amount;
+            this.withdrawal = withdrawal;
+        }
+
+        private void complete() {
+            if (this.failure != null) {
+                this.result.completeExceptionally(this.failure);
+            } else {
+                this.result.complete(this.success);
+            }
+        }
+
+        private AccountDto await(long timeoutMillis) throws ResourceNotFoundException, InsufficientAccountBalanceException,
+                TimeoutException {
+            try {
+                return this.result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the group commit", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof ResourceNotFoundException resourceNotFoundException) {
+                    throw resourceNotFoundException;
+                }
+                if (cause instanceof InsufficientAccountBalanceException insufficientAccountBalanceException) {
+                    throw insufficientAccountBalanceException;
+                }
+                if (cause instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw new IllegalStateException(cause);
+            }
+        }
+    }
+}
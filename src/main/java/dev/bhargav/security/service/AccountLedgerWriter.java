@@ -0,0 +1,209 @@
+package dev.bhargav.security.service;
+
+import dev.bhargav.security.builder.AccountTransactionEventBuilder;
+import dev.bhargav.security.cache.AccountCache;
+import dev.bhargav.security.config.AccountLedgerMigration;
+import dev.bhargav.security.constant.AccountConstants;
+import dev.bhargav.security.deserializer.AccountDetailsDeserializer;
+import dev.bhargav.security.entity.Account;
+import dev.bhargav.security.entity.AccountTransaction;
+import dev.bhargav.security.events.AccountEventHub;
+import dev.bhargav.security.exception.InsufficientAccountBalanceException;
+import dev.bhargav.security.exception.ResourceNotFoundException;
+import dev.bhargav.security.model.AccountDto;
+import dev.bhargav.security.model.BatchTransactionRequest;
+import dev.bhargav.security.model.BatchTransactionResponse;
+import dev.bhargav.security.model.PostingResult;
+import dev.bhargav.security.model.TransactionPosting;
+import dev.bhargav.security.repository.AccountRepository;
+import dev.bhargav.security.repository.AccountTransactionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Transactional writes of single account changes, each one applied as a conditional update of the account row
+ * followed by the append of its event to the ledger. Kept apart from AccountServiceImpl so that callers going through
+ * the AccountGroupCommitter do not hold a transaction, and its connection, while they wait for their batch.
+ */
+@Component
+public class AccountLedgerWriter {
+
+    @Autowired
+    AccountRepository accountRepository;
+
+    @Autowired
+    AccountCache accountCache;
+
+    @Autowired
+    AccountEventHub accountEventHub;
+
+    @Autowired
+    AccountTransactionRepository accountTransactionRepository;
+
+    @Autowired
+    AccountLedgerMigration accountLedgerMigration;
+
+    @Autowired
+    AccountDetailsDeserializer accountDetailsDeserializer;
+
+    @Value("${SERVICE_ACCOUNT}")
+    private String serviceAccount;
+
+    @Transactional(value = "transactionManager")
+    public AccountDto create(Account account) {
+        Account createdAccount = this.accountRepository.save(account);
+        return append(createdAccount, AccountTransactionEventBuilder.createAccountSuccessfulEvent(createdAccount));
+    }
+
+    @Transactional(value = "transactionManager")
+    public AccountDto updateBranch(Integer accNo, String newBranch) throws ResourceNotFoundException {
+        if (this.accountRepository.updateBranch(accNo, newBranch, this.serviceAccount, new Date()) == 0) {
+            requireLedger(accNo);
+            this.accountRepository.updateBranch(accNo, newBranch, this.serviceAccount, new Date());
+        }
+        Account updatedAccount = this.accountRepository.findByAccNo(accNo);
+        return append(updatedAccount, AccountTransactionEventBuilder.updateAccountSuccessfulEvent(updatedAccount));
+    }
+
+    @Transactional(value = "transactionManager")
+    public AccountDto deposit(Integer accNo, int deposit) throws ResourceNotFoundException {
+        if (this.accountRepository.deposit(accNo, deposit, this.serviceAccount, new Date()) == 0) {
+            requireLedger(accNo);
+            this.accountRepository.deposit(accNo, deposit, this.serviceAccount, new Date());
+        }
+        Account updatedAccount = this.accountRepository.findByAccNo(accNo);
+        return append(updatedAccount, AccountTransactionEventBuilder.createDepositSuccessfulEvent(updatedAccount, deposit));
+    }
+
+    @Transactional(value = "transactionManager")
+    public AccountDto withdraw(Integer accNo, int withdraw) throws ResourceNotFoundException, InsufficientAccountBalanceException {
+        if (this.accountRepository.withdraw(accNo, withdraw, this.serviceAccount, new Date()) == 0) {
+            // not found, not migrated yet or insufficient balance
+            requireLedger(accNo);
+            if (this.accountRepository.withdraw(accNo, withdraw, this.serviceAccount, new Date()) == 0) {
+                throw new InsufficientAccountBalanceException(AccountConstants.INSUFFICIENT_ACCOUNT_BALANCE.getMessage());
+            }
+        }
+        Account updatedAccount = this.accountRepository.findByAccNo(accNo);
+        return append(updatedAccount, AccountTransactionEventBuilder.createWithdrawalSuccessfulEvent(updatedAccount, withdraw));
+    }
+
+    /**
+     * Applies the postings of a batch in one transaction. The affected accounts are loaded and locked with a single
+     * IN query, the postings are applied in request order against the running balances, then the ledger rows are
+     * inserted and the accounts updated through JDBC batches when the transaction flushes. In ALL_OR_NOTHING mode a
+     * single rejected posting rolls the whole batch back.
+     *
+     * @param request - BatchTransactionRequest - Postings and batch mode
+     * @return per posting results
+     */
+    @Transactional(value = "transactionManager")
+    public BatchTransactionResponse applyPostings(BatchTransactionRequest request) {
+        List<TransactionPosting> postings = request.getPostings();
+        Map<Integer, Account> accounts = new HashMap<>();
+        this.accountRepository.findByAccNoInForUpdate(postings.stream().map(TransactionPosting::getAccountNumber)
+                .collect(Collectors.toCollection(TreeSet::new))).forEach(account -> {
+            if (account.getLastSequence() == null) {
+                account.setLastSequence(this.accountLedgerMigration.migrate(account.getAccNo()));
+            }
+            accounts.put(account.getAccNo(), account);
+        });
+
+        Date now = new Date();
+        List<PostingResult> results = new ArrayList<>(postings.size());
+        List<AccountTransaction> events = new ArrayList<>(postings.size());
+        int rejected = 0;
+        for (int i = 0; i < postings.size(); i++) {
+            TransactionPosting posting = postings.get(i);
+            PostingResult.PostingResultBuilder result = PostingResult.builder()
+                    .index(i)
+                    .accountNumber(posting.getAccountNumber());
+            Account account = accounts.get(posting.getAccountNumber());
+            if (account == null) {
+                results.add(result.status(PostingResult.PostingStatus.REJECTED)
+                        .error(AccountConstants.ACCOUNT_NOT_FOUND.getMessage()).build());
+                rejected++;
+                continue;
+            }
+            boolean withdrawal = posting.getType() == TransactionPosting.PostingType.WITHDRAWAL;
+            long balance = account.getBalance() != null ? account.getBalance() : 0L;
+            if (withdrawal && posting.getAmount() > balance) {
+                results.add(result.status(PostingResult.PostingStatus.REJECTED)
+                        .error(AccountConstants.INSUFFICIENT_ACCOUNT_BALANCE.getMessage()).build());
+                rejected++;
+                continue;
+            }
+            account.setBalance(withdrawal ? balance - posting.getAmount() : balance + posting.getAmount());
+            account.setLastSequence(account.getLastSequence() + 1);
+            account.setModifiedDate(now);
+            account.setModifiedBy(this.serviceAccount);
+            AccountTransaction event = withdrawal
+                    ? AccountTransactionEventBuilder.createWithdrawalSuccessfulEvent(account, posting.getAmount())
+                    : AccountTransactionEventBuilder.createDepositSuccessfulEvent(account, posting.getAmount());
+            events.add(event);
+            results.add(result.status(PostingResult.PostingStatus.APPLIED)
+                    .accountBalance(account.getBalance())
+                    .transaction(this.accountDetailsDeserializer.deserializeTransaction(event))
+                    .build());
+        }
+
+        boolean committed = rejected == 0 || request.getMode() == BatchTransactionRequest.BatchMode.BEST_EFFORT;
+        if (committed) {
+            this.accountTransactionRepository.saveAll(events);
+            accounts.values().forEach(this.accountCache::putAfterCommit);
+            events.stream().collect(Collectors.groupingBy(AccountTransaction::getAccNo))
+                    .values().forEach(this.accountEventHub::publishAfterCommit);
+        } else {
+            // the modified accounts must not be flushed
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            results.stream().filter(result -> result.getStatus() == PostingResult.PostingStatus.APPLIED)
+                    .forEach(result -> {
+                        result.setStatus(PostingResult.PostingStatus.SKIPPED);
+                        result.setAccountBalance(null);
+                        result.setTransaction(null);
+                    });
+        }
+        return BatchTransactionResponse.builder()
+                .timestamp(now)
+                .mode(request.getMode())
+                .committed(committed)
+                .applied(committed ? events.size() : 0)
+                .rejected(rejected)
+                .results(results)
+                .build();
+    }
+
+    /**
+     * Called when a conditional update matched no row. Throws if the account does not exist, otherwise makes sure
+     * its history has been moved to the ledger so that the update can be retried.
+     */
+    private void requireLedger(Integer accNo) throws ResourceNotFoundException {
+        if (this.accountLedgerMigration.migrate(accNo) == null) {
+            throw new ResourceNotFoundException(AccountConstants.ACCOUNT_NOT_FOUND.getMessage());
+        }
+    }
+
+    /**
+     * Appends the event of an account update to the ledger. The conditional update has advanced the account to the
+     * event sequence number and keeps the account row locked until commit, so the events of concurrent writes are
+     * numbered in the order their updates were applied. Only the new event is returned in the account transactions,
+     * the history is available through getTransactions.
+     */
+    private AccountDto append(Account account, AccountTransaction event) {
+        this.accountTransactionRepository.save(event);
+        this.accountCache.putAfterCommit(account);
+        this.accountEventHub.publishAfterCommit(List.of(event));
+        return this.accountDetailsDeserializer.deserializeAccount(account, List.of(event));
+    }
+}
@@ -0,0 +1,142 @@
+package dev.bhargav.security.service;
+
+import dev.bhargav.security.repository.AccountNumberSequenceRepository;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hi/lo allocator of account numbers. Every node reserves blocks of 'account.number.block-size' numbers from the
+ * account_number_sequence table, in a transaction of its own, and hands them out from memory; blocks are never shared,
+ * so numbers are unique across nodes without a query per account. The numbers of a block left unused when the node
+ * stops are skipped.
+ * <p>
+ * A number is made of 'account.number.width' digits, the first one never 0, followed by a Luhn check digit when
+ * 'account.number.check-digit' is set. The width is at least 6 so that the numbers cannot collide with the 5 digit
+ * random numbers of the accounts created before this allocator, and the whole number has to fit an Integer.
+ */
+@Component
+public class AccountNumberAllocator implements InitializingBean {
+
+    private static final String SEQUENCE_NAME = "account";
+
+    private static final int MIN_WIDTH = 6;
+
+    /**
+     * Any number of 9 digits fits an Integer.
+     */
+    private static final int MAX_DIGITS = 9;
+
+    @Autowired
+    AccountNumberSequenceRepository accountNumberSequenceRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Value("${account.number.width}")
+    private int width;
+
+    @Value("${account.number.check-digit}")
+    private boolean checkDigit;
+
+    @Value("${account.number.block-size}")
+    private long blockSize;
+
+    private final AtomicReference<Block> block = new AtomicReference<>(new Block(0L, 0L));
+
+    private TransactionTemplate reservation;
+
+    private long firstNumber;
+
+    private long lastNumber;
+
+    /**
+     * Hands out the next account number, reserving a new block once the current one is used up.
+     *
+     * @return account number
+     */
+    public Integer allocate() {
+        while (true) {
+            Block current = this.block.get();
+            long number = current.next.getAndIncrement();
+            if (number < current.end) {
+                return (int) (this.checkDigit ? number * 10 + luhnCheckDigit(number) : number);
+            }
+            synchronized (this) {
+                if (this.block.get() == current) {
+                    this.block.set(reserveBlock());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        int digits = this.width + (this.checkDigit ? 1 : 0);
+        if (this.width < MIN_WIDTH || digits > MAX_DIGITS) {
+            throw new IllegalStateException("account.number.width must be at least " + MIN_WIDTH + " and leave at most "
+                    + MAX_DIGITS + " digits including the check digit");
+        }
+        this.firstNumber = (long) Math.pow(10, this.width - 1);
+        this.lastNumber = (long) Math.pow(10, this.width) - 1;
+        this.reservation = new TransactionTemplate(this.transactionManager);
+        // a block must be reserved even when the caller's transaction rolls back, and its row lock released at once
+        this.reservation.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    private Block reserveBlock() {
+        Long blockNumber = this.reservation.execute(status -> {
+            Long nextBlock = this.accountNumberSequenceRepository.findNextBlockForUpdate(SEQUENCE_NAME);
+            if (nextBlock == null) {
+                this.accountNumberSequenceRepository.insertIfAbsent(SEQUENCE_NAME);
+                nextBlock = this.accountNumberSequenceRepository.findNextBlockForUpdate(SEQUENCE_NAME);
+            }
+            this.accountNumberSequenceRepository.updateNextBlock(SEQUENCE_NAME, nextBlock + 1);
+            return nextBlock;
+        });
+        long start = this.firstNumber + blockNumber * this.blockSize;
+        if (start > this.lastNumber) {
+            throw new IllegalStateException("Account numbers of " + this.width + " digits are exhausted");
+        }
+        return new Block(start, Math.min(start + this.blockSize, this.lastNumber + 1));
+    }
+
+    /**
+     * Luhn check digit, which detects any single digit error and most transpositions of adjacent digits.
+     */
+    static int luhnCheckDigit(long number) {
+        int sum = 0;
+        boolean doubled = true;
+        for (long rest = number; rest > 0; rest /= 10) {
+            int digit = (int) (rest % 10);
+            if (doubled) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+            doubled = !doubled;
+        }
+        return (10 - sum % 10) % 10;
+    }
+
+    private static final class Block {
+
+        private final AtomicLong next;
+
+        private final long end;
+
+        private Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
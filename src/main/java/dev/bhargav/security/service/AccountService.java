@@ -4,12 +4,32 @@ import dev.bhargav.security.exception.BadRequestException;
 import dev.bhargav.security.exception.InsufficientAccountBalanceException;
 import dev.bhargav.security.exception.ResourceNotFoundException;
 import dev.bhargav.security.model.AccountDto;
-
+import dev.bhargav.security.model.AccountLookupRequest;
+import dev.bhargav.security.model.AccountLookupResponse;
+import dev.bhargav.security.model.AccountPage;
+import dev.bhargav.security.model.AccountVersion;
+import dev.bhargav.security.model.BatchTransactionRequest;
+import dev.bhargav.security.model.BatchTransactionResponse;
+import dev.bhargav.security.model.TransactionPage;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 public interface AccountService {
 
-    public AccountDto getAccountInformation(String accountNumber) throws ResourceNotFoundException, BadRequestException;
+    public AccountDto getAccountInformation(String accountNumber, String latest) throws ResourceNotFoundException, BadRequestException;
+
+    AccountVersion getAccountVersion(String accountNumber) throws ResourceNotFoundException, BadRequestException;
+
+    AccountVersion getAccountVersion(String accountNumber, String latest) throws ResourceNotFoundException, BadRequestException;
+
+    SseEmitter subscribeToEvents(String accountNumber, String lastEventId) throws ResourceNotFoundException, BadRequestException;
+
+    AccountLookupResponse lookupAccounts(AccountLookupRequest accountLookupRequest) throws BadRequestException;
+
+    TransactionPage getTransactions(String accountNumber, String before, String limit, String from, String to) throws ResourceNotFoundException, BadRequestException;
 
     AccountDto createAccount(AccountDto accountDto) throws BadRequestException;
 
@@ -21,5 +41,9 @@ public interface AccountService {
 
     AccountDto withdraw(String accountNumber, String withdrawalAmount) throws ResourceNotFoundException, BadRequestException, InsufficientAccountBalanceException;
 
-    List<AccountDto> getAllAccounts();
+    BatchTransactionResponse applyTransactions(BatchTransactionRequest batchTransactionRequest) throws BadRequestException;
+
+    AccountPage getAccounts(String after, String limit) throws BadRequestException;
+
+    long exportAccounts(OutputStream outputStream) throws IOException;
 }
@@ -1,52 +1,234 @@
 package dev.bhargav.security.service;
 
-import dev.bhargav.security.builder.AccountTransactionEventBuilder;
+import dev.bhargav.security.cache.AccountCache;
+import dev.bhargav.security.cache.SingleFlight;
+import dev.bhargav.security.config.AccountLedgerMigration;
 import dev.bhargav.security.constant.AccountConstants;
 import dev.bhargav.security.deserializer.AccountDetailsDeserializer;
 import dev.bhargav.security.entity.Account;
+import dev.bhargav.security.entity.AccountTransaction;
+import dev.bhargav.security.events.AccountEventHub;
 import dev.bhargav.security.exception.BadRequestException;
 import dev.bhargav.security.exception.InsufficientAccountBalanceException;
 import dev.bhargav.security.exception.ResourceNotFoundException;
 import dev.bhargav.security.model.AccountDto;
-import dev.bhargav.security.model.Transaction;
+import dev.bhargav.security.model.AccountLookupRequest;
+import dev.bhargav.security.model.AccountLookupResponse;
+import dev.bhargav.security.model.AccountPage;
+import dev.bhargav.security.model.AccountVersion;
+import dev.bhargav.security.model.BatchTransactionRequest;
+import dev.bhargav.security.model.BatchTransactionResponse;
+import dev.bhargav.security.model.TransactionPage;
 import dev.bhargav.security.repository.AccountRepository;
+import dev.bhargav.security.repository.AccountSummary;
+import dev.bhargav.security.repository.AccountTransactionRepository;
 import dev.bhargav.security.serializer.AccountDetailsSerializer;
 import dev.bhargav.security.service.AccountService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import io.micrometer.common.util.StringUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.apache.commons.lang3.math.NumberUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.stream.Stream;
 
 @Service
 public class AccountServiceImpl implements AccountService {
 
+    private static final int EXPORT_FLUSH_INTERVAL = 1000;
+
+    /**
+     * Bounds of the MySQL DATETIME range, used when no 'from' / 'to' filter is given.
+     */
+    private static final LocalDateTime EARLIEST_TS = LocalDateTime.of(1000, 1, 1, 0, 0);
+
+    private static final LocalDateTime LATEST_TS = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
     @Autowired
     AccountRepository accountRepository;
 
+    @Autowired
+    AccountCache accountCache;
+
+    @Autowired
+    AccountEventHub accountEventHub;
+
+    @Autowired
+    AccountTransactionRepository accountTransactionRepository;
+
+    @Autowired
+    AccountLedgerMigration accountLedgerMigration;
+
+    @Autowired
+    AccountLedgerWriter accountLedgerWriter;
+
+    @Autowired
+    AccountGroupCommitter accountGroupCommitter;
+
     @Autowired
     AccountDetailsDeserializer accountDetailsDeserializer;
 
     @Autowired
     AccountDetailsSerializer accountDetailsSerializer;
 
-    @Value("${SERVICE_ACCOUNT}")
-    private String serviceAccount;
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Value("${account.batch.max-postings}")
+    private int maxBatchPostings;
+
+    @Value("${account.list.default-page-size}")
+    private int defaultPageSize;
+
+    @Value("${account.list.max-page-size}")
+    private int maxPageSize;
+
+    @Value("${account.lookup.max-accounts}")
+    private int maxLookupAccounts;
+
+    @Value("${account.lookup.chunk-size}")
+    private int lookupChunkSize;
+
+    @Value("${account.transactions.default-page-size}")
+    private int defaultTransactionPageSize;
+
+    @Value("${account.transactions.max-page-size}")
+    private int maxTransactionPageSize;
+
+    private SingleFlight<String, AccountDto> accountReads;
+
+    @PostConstruct
+    public void initAccountReads() {
+        this.accountReads = new SingleFlight<>("account.read", this.meterRegistry);
+    }
 
+    /**
+     * Returns the account with its full history, or with only its latest events when 'latest' is given. Concurrent
+     * requests for the same account and the same 'latest' share one load and get the same AccountDto.
+     *
+     * @param accountNumber - String - Account number
+     * @param latest        - String - Number of latest events to return, capped by 'account.transactions.max-page-size'
+     * @return account
+     */
     @Override
-    public AccountDto getAccountInformation(String accountNumber) throws ResourceNotFoundException, BadRequestException {
+    public AccountDto getAccountInformation(String accountNumber, String latest) throws ResourceNotFoundException, BadRequestException {
+        int latestCount = latestCount(accountNumber, latest);
+        Integer accNo = Integer.parseInt(accountNumber);
+        try {
+            return this.accountReads.execute(accNo + ":" + latestCount, () -> loadAccountInformation(accNo, latestCount));
+        } catch (ResourceNotFoundException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Validates the account number and the 'latest' parameter.
+     *
+     * @return number of latest events to return, capped by 'account.transactions.max-page-size', -1 for the full
+     * history
+     */
+    private int latestCount(String accountNumber, String latest) throws BadRequestException {
+        StringJoiner stringJoiner = new StringJoiner(AccountConstants.COMMA.getMessage());
         if (StringUtils.isBlank(accountNumber) || !NumberUtils.isDigits(accountNumber)) {
-            throw new BadRequestException(AccountConstants.PROVIDE_VALID_INPUTS.getMessage() + AccountConstants.ACCOUNT_NUMBER.getMessage());
+            stringJoiner.add(AccountConstants.ACCOUNT_NUMBER.getMessage());
         }
-        Optional<Account> byAccNo = Optional.ofNullable(this.accountRepository.findByAccNo(Integer.parseInt(accountNumber)));
-        if (byAccNo.isEmpty()) {
-            throw new ResourceNotFoundException(AccountConstants.ACCOUNT_NOT_FOUND.getMessage());
+        if (StringUtils.isNotBlank(latest) && NumberUtils.toInt(latest, -1) < 0) {
+            stringJoiner.add(AccountConstants.LATEST.getMessage());
+        }
+        if (stringJoiner.length() > 0) {
+            throw new BadRequestException(AccountConstants.PROVIDE_VALID_INPUTS.getMessage() + stringJoiner);
+        }
+        return StringUtils.isBlank(latest) ? -1 : Math.min(NumberUtils.toInt(latest), this.maxTransactionPageSize);
+    }
+
+    /**
+     * Loads the account with its full history or its latest events. The account may be a cached snapshot, its events
+     * are read up to the snapshot's 'lastSequence' so that the history always matches the returned balance.
+     *
+     * @param accNo       - Integer - Account number
+     * @param latestCount - int - Number of latest events to return, -1 for the full history
+     * @return account
+     */
+    private AccountDto loadAccountInformation(Integer accNo, int latestCount) throws ResourceNotFoundException {
+        Account accountInformation = findMigrated(accNo);
+        if (latestCount < 0) {
+            return this.accountDetailsDeserializer.deserializeAccount(accountInformation,
+                    this.accountTransactionRepository.findByAccNoAndSequenceLessThanEqualOrderBySequenceAsc(
+                            accountInformation.getAccNo(), accountInformation.getLastSequence()));
+        }
+        List<AccountTransaction> latestTransactions = latestCount == 0 ? new ArrayList<>()
+                : new ArrayList<>(this.accountTransactionRepository.findByAccNoAndSequenceLessThanEqualOrderBySequenceDesc(
+                        accountInformation.getAccNo(), accountInformation.getLastSequence(), Limit.of(latestCount)));
+        Collections.reverse(latestTransactions);
+        return this.accountDetailsDeserializer.deserializeAccount(accountInformation, latestTransactions);
+    }
+
+    /**
+     * Returns a page of the account history, latest event first, optionally limited to the events within [from, to).
+     * Pages are keyed by the event sequence number, so the cost of a page does not depend on the age of the account.
+     *
+     * @param accountNumber - String - Account number
+     * @param before        - String - Sequence number the page starts before, the 'X-Next-Cursor' of the previous page
+     * @param limit         - String - Page size, capped by 'account.transactions.max-page-size'
+     * @param from          - String - ISO local date-time, inclusive lower bound of the event timestamps
+     * @param to            - String - ISO local date-time, exclusive upper bound of the event timestamps
+     * @return TransactionPage
+     */
+    @Override
+    public TransactionPage getTransactions(String accountNumber, String before, String limit, String from, String to) throws ResourceNotFoundException, BadRequestException {
+        StringJoiner stringJoiner = new StringJoiner(AccountConstants.COMMA.getMessage());
+        if (StringUtils.isBlank(accountNumber) || !NumberUtils.isDigits(accountNumber)) {
+            stringJoiner.add(AccountConstants.ACCOUNT_NUMBER.getMessage());
+        }
+        if (StringUtils.isNotBlank(before) && NumberUtils.toLong(before, 0L) < 1) {
+            stringJoiner.add(AccountConstants.BEFORE.getMessage());
+        }
+        if (StringUtils.isNotBlank(limit) && NumberUtils.toInt(limit, 0) < 1) {
+            stringJoiner.add(AccountConstants.LIMIT.getMessage());
+        }
+        LocalDateTime fromTs = parseTimestamp(from, EARLIEST_TS, AccountConstants.FROM, stringJoiner);
+        LocalDateTime toTs = parseTimestamp(to, LATEST_TS, AccountConstants.TO, stringJoiner);
+        if (stringJoiner.length() > 0) {
+            throw new BadRequestException(AccountConstants.PROVIDE_VALID_INPUTS.getMessage() + stringJoiner);
         }
-        Account accountInformation = byAccNo.get();
-        byAccNo.get().getTransactions().sort(Comparator.comparing(Transaction::getTs));
-        return this.accountDetailsDeserializer.deserializeAccount(byAccNo.get());
+        Account account = findMigrated(Integer.parseInt(accountNumber));
+        int pageSize = StringUtils.isBlank(limit) ? this.defaultTransactionPageSize
+                : Math.min(NumberUtils.toInt(limit), this.maxTransactionPageSize);
+        Long beforeSequence = StringUtils.isBlank(before) ? Long.valueOf(Long.MAX_VALUE) : Long.valueOf(before);
+        List<AccountTransaction> accountTransactions = this.accountTransactionRepository
+                .findByAccNoAndSequenceLessThanAndTsGreaterThanEqualAndTsLessThanOrderBySequenceDesc(
+                        account.getAccNo(), beforeSequence, fromTs, toTs, Limit.of(pageSize));
+        Long nextCursor = accountTransactions.size() < pageSize ? null
+                : accountTransactions.get(accountTransactions.size() - 1).getSequence();
+        return new TransactionPage(this.accountDetailsDeserializer.deserializeTransactions(accountTransactions), nextCursor);
     }
 
     @Override
@@ -63,8 +245,7 @@ public class AccountServiceImpl implements AccountService {
             throw new BadRequestException(AccountConstants.PROVIDE_VALID_INPUTS.getMessage() + stringJoiner);
         }
 
-        Account account = this.accountDetailsSerializer.serializeAccount(accountDto);
-        return this.accountDetailsDeserializer.deserializeAccount(this.accountRepository.save(account));
+        return this.accountLedgerWriter.create(this.accountDetailsSerializer.serializeAccount(accountDto));
     }
 
     @Override
@@ -79,22 +260,42 @@ public class AccountServiceImpl implements AccountService {
         if (stringJoiner.length() > 0) {
             throw new BadRequestException(AccountConstants.PROVIDE_VALID_INPUTS.getMessage() + stringJoiner);
         }
-        Optional<Account> byAccNo = Optional.ofNullable(this.accountRepository.findByAccNo(Integer.parseInt(accountNumber)));
+        return this.accountLedgerWriter.updateBranch(Integer.parseInt(accountNumber), newBranch);
+    }
+
+    /**
+     * Returns the cached account snapshot or loads it, moving its history to the ledger first if it still is in the
+     * legacy JSON column.
+     */
+    private Account findMigrated(Integer accNo) throws ResourceNotFoundException {
+        Optional<Account> byAccNo = Optional.ofNullable(this.accountCache.get(accNo, key -> {
+            Account account = this.accountRepository.findByAccNo(key);
+            if (account != null && account.getLastSequence() == null) {
+                account.setLastSequence(this.accountLedgerMigration.migrate(key));
+            }
+            return account;
+        }));
         if (byAccNo.isEmpty()) {
             throw new ResourceNotFoundException(AccountConstants.ACCOUNT_NOT_FOUND.getMessage());
         }
-        Account existingAccount = byAccNo.get();
-        existingAccount.setBranch(newBranch);
-        existingAccount.setTransactions(AccountTransactionEventBuilder
-                .updateAccountSuccessfulEvent(existingAccount.getTransactions()));
-        existingAccount.setModifiedDate(new Date());
-        existingAccount.setModifiedBy(this.serviceAccount);
-        Account updatedAccount = this.accountRepository.save(existingAccount);
-        updatedAccount.getTransactions().sort(Comparator.comparing(Transaction::getTs));
-        return this.accountDetailsDeserializer.deserializeAccount(updatedAccount);
+        return byAccNo.get();
+    }
+
+    private static LocalDateTime parseTimestamp(String timestamp, LocalDateTime defaultValue, AccountConstants name,
+                                                StringJoiner invalidInputs) {
+        if (StringUtils.isBlank(timestamp)) {
+            return defaultValue;
+        }
+        try {
+            return LocalDateTime.parse(timestamp);
+        } catch (DateTimeParseException e) {
+            invalidInputs.add(name.getMessage());
+            return defaultValue;
+        }
     }
 
     @Override
+    @Transactional(value = "transactionManager")
     public void deleteAccount(String accountNumber) throws ResourceNotFoundException, BadRequestException {
         if (StringUtils.isBlank(accountNumber) || !NumberUtils.isDigits(accountNumber)) {
             throw new BadRequestException(AccountConstants.PROVIDE_VALID_INPUTS.getMessage() + AccountConstants.ACCOUNT_NUMBER.getMessage());
@@ -104,6 +305,9 @@ public class AccountServiceImpl implements AccountService {
             throw new ResourceNotFoundException(AccountConstants.ACCOUNT_NOT_FOUND.getMessage());
         }
         this.accountRepository.deleteByAccNo(Integer.parseInt(accountNumber));
+        this.accountTransactionRepository.deleteByAccNo(Integer.parseInt(accountNumber));
+        this.accountCache.invalidateAfterCommit(Integer.parseInt(accountNumber));
+        this.accountEventHub.closeAfterCommit(Integer.parseInt(accountNumber));
     }
 
     @Override
@@ -119,21 +323,12 @@ public class AccountServiceImpl implements AccountService {
             throw new BadRequestException(AccountConstants.PROVIDE_VALID_INPUTS.getMessage() + stringJoiner);
         }
 
-        Optional<Account> byAccNo = Optional.ofNullable(this.accountRepository.findByAccNo(Integer.parseInt(accountNumber)));
-        if (byAccNo.isEmpty()) {
-            throw new ResourceNotFoundException(AccountConstants.ACCOUNT_NOT_FOUND.getMessage());
-        }
-        Account existingAccount = byAccNo.get();
+        Integer accNo = Integer.parseInt(accountNumber);
         int deposit = Integer.parseInt(depositAmount);
-        Long newBalance = ((existingAccount.getBalance() != null) ? existingAccount.getBalance() : 0L) + deposit;
-        existingAccount.setBalance(newBalance);
-        existingAccount.setModifiedDate(new Date());
-        existingAccount.setModifiedBy(this.serviceAccount);
-        existingAccount.setTransactions(AccountTransactionEventBuilder
-                .createDepositSuccessfulEvent(existingAccount.getTransactions(), deposit));
-        Account updatedAccount = this.accountRepository.save(existingAccount);
-        updatedAccount.getTransactions().sort(Comparator.comparing(Transaction::getTs));
-        return this.accountDetailsDeserializer.deserializeAccount(updatedAccount);
+        if (this.accountGroupCommitter.isEnabled()) {
+            return this.accountGroupCommitter.deposit(accNo, deposit);
+        }
+        return this.accountLedgerWriter.deposit(accNo, deposit);
     }
 
     @Override
@@ -149,31 +344,193 @@ public class AccountServiceImpl implements AccountService {
             throw new BadRequestException(AccountConstants.PROVIDE_VALID_INPUTS.getMessage() + stringJoiner);
         }
 
-        Optional<Account> byAccNo = Optional.ofNullable(this.accountRepository.findByAccNo(Integer.parseInt(accountNumber)));
-        if (byAccNo.isEmpty()) {
-            throw new ResourceNotFoundException(AccountConstants.ACCOUNT_NOT_FOUND.getMessage());
+        Integer accNo = Integer.parseInt(accountNumber);
+        int withdraw = Integer.parseInt(withdrawalAmount);
+        if (this.accountGroupCommitter.isEnabled()) {
+            return this.accountGroupCommitter.withdraw(accNo, withdraw);
         }
-        Account existingAccount = byAccNo.get();
-        Integer withdraw = Integer.parseInt(withdrawalAmount);
+        return this.accountLedgerWriter.withdraw(accNo, withdraw);
+    }
 
-        Long existingBalance = ((existingAccount.getBalance() != null) ? existingAccount.getBalance() : 0L);
-        if (Long.valueOf(withdraw) > existingBalance) {
-            throw new InsufficientAccountBalanceException(AccountConstants.INSUFFICIENT_ACCOUNT_BALANCE.getMessage());
+    @Override
+    public BatchTransactionResponse applyTransactions(BatchTransactionRequest batchTransactionRequest) throws BadRequestException {
+        if (batchTransactionRequest.getPostings().size() > this.maxBatchPostings) {
+            throw new BadRequestException("A batch takes at most " + this.maxBatchPostings + " postings");
+        }
+        if (batchTransactionRequest.getMode() == null) {
+            batchTransactionRequest.setMode(BatchTransactionRequest.BatchMode.ALL_OR_NOTHING);
         }
+        return this.accountLedgerWriter.applyPostings(batchTransactionRequest);
+    }
 
-        Long newBalance = existingBalance - withdraw;
-        existingAccount.setBalance(newBalance);
-        existingAccount.setModifiedDate(new Date());
-        existingAccount.setModifiedBy(this.serviceAccount);
-        existingAccount.setTransactions(AccountTransactionEventBuilder
-                .createWithdrawalSuccessfulEvent(existingAccount.getTransactions(), withdraw));
-        Account updatedAccount = this.accountRepository.save(existingAccount);
-        updatedAccount.getTransactions().sort(Comparator.comparing(Transaction::getTs));
-        return this.accountDetailsDeserializer.deserializeAccount(updatedAccount);
+    /**
+     * Opens a Server-Sent Events stream of the account events committed from now on, preceded by the events following
+     * 'Last-Event-ID' when the client resumes a stream.
+     *
+     * @param accountNumber - String - Account number
+     * @param lastEventId   - String - Sequence number of the last event the client received
+     * @return SseEmitter
+     */
+    @Override
+    public SseEmitter subscribeToEvents(String accountNumber, String lastEventId) throws ResourceNotFoundException, BadRequestException {
+        StringJoiner stringJoiner = new StringJoiner(AccountConstants.COMMA.getMessage());
+        if (StringUtils.isBlank(accountNumber) || !NumberUtils.isDigits(accountNumber)) {
+            stringJoiner.add(AccountConstants.ACCOUNT_NUMBER.getMessage());
+        }
+        if (StringUtils.isNotBlank(lastEventId) && NumberUtils.toLong(lastEventId, -1L) < 0) {
+            stringJoiner.add(AccountConstants.LAST_EVENT_ID.getMessage());
+        }
+        if (stringJoiner.length() > 0) {
+            throw new BadRequestException(AccountConstants.PROVIDE_VALID_INPUTS.getMessage() + stringJoiner);
+        }
+        Account account = findMigrated(Integer.parseInt(accountNumber));
+        return this.accountEventHub.subscribe(account.getAccNo(),
+                StringUtils.isBlank(lastEventId) ? null : Long.valueOf(lastEventId));
     }
 
+    /**
+     * Resolves a list of account numbers at once. Cached accounts are served from the AccountCache, the others are
+     * read with 'acc_no in (...)' queries of at most 'account.lookup.chunk-size' account numbers each.
+     *
+     * @param accountLookupRequest - AccountLookupRequest - Account numbers to resolve
+     * @return found accounts and missing account numbers, both in request order
+     */
     @Override
-    public List<AccountDto> getAllAccounts() {
-        return this.accountDetailsDeserializer.deserializeAccounts(this.accountRepository.findAll());
+    public AccountLookupResponse lookupAccounts(AccountLookupRequest accountLookupRequest) throws BadRequestException {
+        Set<Integer> accNos = new LinkedHashSet<>(accountLookupRequest.getAccountNumbers());
+        if (accNos.size() > this.maxLookupAccounts) {
+            throw new BadRequestException("A lookup takes at most " + this.maxLookupAccounts + " account numbers");
+        }
+        Map<Integer, AccountDto> found = new HashMap<>();
+        this.accountCache.getAllPresent(accNos).forEach((accNo, account) ->
+                found.put(accNo, this.accountDetailsDeserializer.deserializeAccount(account)));
+        List<Integer> uncached = accNos.stream().filter(accNo -> !found.containsKey(accNo)).toList();
+        for (int from = 0; from < uncached.size(); from += this.lookupChunkSize) {
+            this.accountRepository.findByAccNoIn(uncached.subList(from, Math.min(from + this.lookupChunkSize, uncached.size())))
+                    .forEach(accountSummary -> found.put(accountSummary.getAccNo(),
+                            this.accountDetailsDeserializer.deserializeAccountSummary(accountSummary)));
+        }
+        List<AccountDto> accounts = new ArrayList<>(found.size());
+        List<Integer> missing = new ArrayList<>();
+        accNos.forEach(accNo -> {
+            AccountDto account = found.get(accNo);
+            if (account != null) {
+                accounts.add(account);
+            } else {
+                missing.add(accNo);
+            }
+        });
+        return AccountLookupResponse.builder()
+                .accounts(accounts)
+                .missing(missing)
+                .build();
+    }
+
+    @Override
+    public AccountPage getAccounts(String after, String limit) throws BadRequestException {
+        StringJoiner stringJoiner = new StringJoiner(AccountConstants.COMMA.getMessage());
+        if (StringUtils.isNotBlank(after) && !NumberUtils.isDigits(after)) {
+            stringJoiner.add(AccountConstants.AFTER.getMessage());
+        }
+        if (StringUtils.isNotBlank(limit) && NumberUtils.toInt(limit, 0) < 1) {
+            stringJoiner.add(AccountConstants.LIMIT.getMessage());
+        }
+        if (stringJoiner.length() > 0) {
+            throw new BadRequestException(AccountConstants.PROVIDE_VALID_INPUTS.getMessage() + stringJoiner);
+        }
+        int pageSize = StringUtils.isBlank(limit) ? this.defaultPageSize : Math.min(NumberUtils.toInt(limit), this.maxPageSize);
+        Integer afterAccNo = StringUtils.isBlank(after) ? Integer.valueOf(-1) : Integer.valueOf(after);
+        List<AccountSummary> accountSummaries = this.accountRepository
+                .findByAccNoGreaterThanOrderByAccNoAsc(afterAccNo, Limit.of(pageSize));
+        Integer nextCursor = accountSummaries.size() < pageSize ? null
+                : accountSummaries.get(accountSummaries.size() - 1).getAccNo();
+        return new AccountPage(this.accountDetailsDeserializer.deserializeAccountSummaries(accountSummaries), nextCursor,
+                pageETag(accountSummaries));
+    }
+
+    /**
+     * Version of the account, read from the AccountCache when possible. The entity tag combines the row id, which
+     * differs if an account number is ever reused, with the sequence number of the latest event, which every change
+     * of the account advances. A later load of the account returns this version or a newer one.
+     *
+     * @param accountNumber - String - Account number
+     * @return AccountVersion
+     */
+    @Override
+    public AccountVersion getAccountVersion(String accountNumber) throws ResourceNotFoundException, BadRequestException {
+        if (StringUtils.isBlank(accountNumber) || !NumberUtils.isDigits(accountNumber)) {
+            throw new BadRequestException(AccountConstants.PROVIDE_VALID_INPUTS.getMessage() + AccountConstants.ACCOUNT_NUMBER.getMessage());
+        }
+        Account account = findMigrated(Integer.parseInt(accountNumber));
+        Date lastModified = account.getModifiedDate() != null ? account.getModifiedDate() : account.getCreatedDate();
+        return new AccountVersion(account.getId() + "-" + account.getLastSequence(),
+                lastModified != null ? lastModified.getTime() : -1L);
+    }
+
+    /**
+     * Version of the account details as returned for the given 'latest' parameter. The response body depends on the
+     * number of latest events, so every value gets an entity tag of its own: 'all' for the full history, the capped
+     * count otherwise, so that requests returning the same body share it.
+     *
+     * @param accountNumber - String - Account number
+     * @param latest        - String - Number of latest transactions to return, the whole history if blank
+     * @return AccountVersion
+     */
+    @Override
+    public AccountVersion getAccountVersion(String accountNumber, String latest) throws ResourceNotFoundException, BadRequestException {
+        int latestCount = latestCount(accountNumber, latest);
+        AccountVersion accountVersion = getAccountVersion(accountNumber);
+        return new AccountVersion(accountVersion.eTag() + "-" + (latestCount < 0 ? "all" : "latest" + latestCount),
+                accountVersion.lastModified());
+    }
+
+    /**
+     * Digest of the versions of the accounts of a page.
+     */
+    private static String pageETag(List<AccountSummary> accountSummaries) {
+        StringBuilder versions = new StringBuilder();
+        accountSummaries.forEach(accountSummary -> versions.append(accountSummary.getId()).append('-')
+                .append(accountSummary.getLastSequence()).append(','));
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(messageDigest.digest(versions.toString().getBytes(StandardCharsets.UTF_8)), 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Writes every account as one JSON line, reading them through a database cursor and detaching each one once
+     * written, so that the memory in use does not depend on the number of accounts. A client disconnect surfaces as an
+     * IOException from the output stream, which ends the export and closes the cursor.
+     *
+     * @param outputStream - OutputStream - Response body
+     * @return number of exported accounts
+     * @throws IOException if the output stream fails or the export thread is interrupted
+     */
+    @Override
+    @Transactional(value = "transactionManager", readOnly = true)
+    public long exportAccounts(OutputStream outputStream) throws IOException {
+        long exported = 0L;
+        try (Stream<Account> accounts = this.accountRepository.streamAllByOrderByAccNoAsc();
+             JsonGenerator generator = this.objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // ObjectMapper.writeValue flushes after every value, the rows are only flushed every EXPORT_FLUSH_INTERVAL
+            ObjectWriter rowWriter = this.objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            Iterator<Account> iterator = accounts.iterator();
+            while (iterator.hasNext()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Account export interrupted after " + exported + " accounts");
+                }
+                Account account = iterator.next();
+                rowWriter.writeValue(generator, this.accountDetailsDeserializer.deserializeAccount(account));
+                generator.writeRaw('\n');
+                this.entityManager.detach(account);
+                if (++exported % EXPORT_FLUSH_INTERVAL == 0) {
+                    generator.flush();
+                }
+            }
+        }
+        return exported;
     }
 }
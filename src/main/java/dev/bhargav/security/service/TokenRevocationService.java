@@ -0,0 +1,12 @@
+package dev.bhargav.security.service;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+
+public interface TokenRevocationService {
+
+    boolean isRevoked(Jwt jwt);
+
+    void revokeToken(Jwt jwt);
+
+    void revokeSubject(String username);
+}
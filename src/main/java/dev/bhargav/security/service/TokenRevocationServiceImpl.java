@@ -0,0 +1,152 @@
+package dev.bhargav.security.service;
+
+import dev.bhargav.security.cache.BloomFilter;
+import dev.bhargav.security.entity.RevokedToken;
+import dev.bhargav.security.repository.RevokedTokenRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Access token revocation backed by the revoked_token table.
+ * <p>
+ * The request path only consults an in-memory Bloom filter of the revoked 'jti' values and subjects, the table is
+ * queried only when the filter reports a (possibly false) positive. Every node polls the table for new revocations
+ * and periodically rebuilds its filter from the rows which are still relevant, after purging the expired ones.
+ */
+@Service
+public class TokenRevocationServiceImpl implements TokenRevocationService {
+
+    private static final String TOKEN_NAMESPACE = "jti";
+
+    private static final String SUBJECT_NAMESPACE = "sub";
+
+    @Autowired
+    RevokedTokenRepository revokedTokenRepository;
+
+    @Value("${jwt.access-token.expiry-seconds}")
+    private long accessTokenExpiry;
+
+    @Value("${auth.revocation.expected-entries}")
+    private long expectedEntries;
+
+    @Value("${auth.revocation.false-positive-rate}")
+    private double falsePositiveRate;
+
+    @Value("${auth.revocation.poll-overlap-ms}")
+    private long pollOverlap;
+
+    private final AtomicReference<BloomFilter> filter = new AtomicReference<>();
+
+    private volatile Date lastPoll = new Date(0L);
+
+    @Override
+    public boolean isRevoked(Jwt jwt) {
+        BloomFilter revoked = this.filter.get();
+        boolean tokenHit = jwt.getId() != null && revoked.mightContain(TOKEN_NAMESPACE, jwt.getId());
+        boolean subjectHit = jwt.getSubject() != null && revoked.mightContain(SUBJECT_NAMESPACE, jwt.getSubject());
+        if (!tokenHit && !subjectHit) {
+            return false;
+        }
+        if (tokenHit && this.revokedTokenRepository.existsById(key(TOKEN_NAMESPACE, jwt.getId()))) {
+            return true;
+        }
+        if (subjectHit) {
+            Optional<RevokedToken> revokedSubject = this.revokedTokenRepository.findById(key(SUBJECT_NAMESPACE, jwt.getSubject()));
+            Instant issuedAt = jwt.getIssuedAt();
+            return revokedSubject.isPresent()
+                    && (issuedAt == null || !issuedAt.isAfter(revokedSubject.get().getRevokedAt().toInstant()));
+        }
+        return false;
+    }
+
+    @Override
+    @Transactional(value = "transactionManager")
+    public void revokeToken(Jwt jwt) {
+        if (jwt.getId() == null) {
+            // tokens issued before 'jti' was introduced can only be revoked along with the whole subject
+            revokeSubject(jwt.getSubject());
+            return;
+        }
+        Date expiresAt = jwt.getExpiresAt() != null ? Date.from(jwt.getExpiresAt())
+                : new Date(System.currentTimeMillis() + this.accessTokenExpiry * 1000L);
+        this.revokedTokenRepository.save(RevokedToken.builder()
+                .revocationKey(key(TOKEN_NAMESPACE, jwt.getId()))
+                .type(RevokedToken.RevocationType.TOKEN)
+                .revokedAt(new Date())
+                .expiresAt(expiresAt)
+                .build());
+        this.filter.get().put(TOKEN_NAMESPACE, jwt.getId());
+    }
+
+    @Override
+    @Transactional(value = "transactionManager")
+    public void revokeSubject(String username) {
+        long now = System.currentTimeMillis();
+        this.revokedTokenRepository.save(RevokedToken.builder()
+                .revocationKey(key(SUBJECT_NAMESPACE, username))
+                .type(RevokedToken.RevocationType.SUBJECT)
+                .revokedAt(new Date(now))
+                .expiresAt(new Date(now + this.accessTokenExpiry * 1000L))
+                .build());
+        this.filter.get().put(SUBJECT_NAMESPACE, username);
+    }
+
+    /**
+     * Adds the revocations made on other nodes since the last poll to the local filter.
+     */
+    @Scheduled(fixedDelayString = "${auth.revocation.poll-interval-ms}")
+    public void pollRevocations() {
+        Date pollStart = new Date();
+        BloomFilter revoked = this.filter.get();
+        this.revokedTokenRepository.findByRevokedAtGreaterThanEqual(new Date(this.lastPoll.getTime() - this.pollOverlap))
+                .forEach(revokedToken -> put(revoked, revokedToken));
+        this.lastPoll = pollStart;
+    }
+
+    /**
+     * Builds the filter from the stored revocations before the first request comes in.
+     */
+    @PostConstruct
+    public void loadFilter() {
+        this.filter.set(buildFilter(new Date()));
+    }
+
+    /**
+     * Purges the expired revocations and rebuilds the filter from the remaining ones.
+     */
+    @Scheduled(fixedDelayString = "${auth.revocation.rebuild-interval-ms}", initialDelayString = "${auth.revocation.rebuild-interval-ms}")
+    @Transactional(value = "transactionManager")
+    public void rebuildFilter() {
+        Date now = new Date();
+        this.revokedTokenRepository.deleteExpired(now);
+        this.filter.set(buildFilter(now));
+    }
+
+    private BloomFilter buildFilter(Date now) {
+        List<RevokedToken> revokedTokens = this.revokedTokenRepository.findByExpiresAtAfter(now);
+        BloomFilter bloomFilter = new BloomFilter(Math.max(this.expectedEntries, revokedTokens.size() * 2L), this.falsePositiveRate);
+        revokedTokens.forEach(revokedToken -> put(bloomFilter, revokedToken));
+        this.lastPoll = now;
+        return bloomFilter;
+    }
+
+    private static void put(BloomFilter bloomFilter, RevokedToken revokedToken) {
+        String namespace = revokedToken.getType() == RevokedToken.RevocationType.TOKEN ? TOKEN_NAMESPACE : SUBJECT_NAMESPACE;
+        bloomFilter.put(namespace, revokedToken.getRevocationKey().substring(namespace.length() + 1));
+    }
+
+    private static String key(String namespace, String value) {
+        return namespace + ":" + value;
+    }
+}
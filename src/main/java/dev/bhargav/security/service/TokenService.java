@@ -0,0 +1,12 @@
+package dev.bhargav.security.service;
+
+import dev.bhargav.security.entity.User;
+import dev.bhargav.security.exception.InvalidTokenException;
+import dev.bhargav.security.model.JwtAuthenticationResponse;
+
+public interface TokenService {
+
+    JwtAuthenticationResponse issueTokens(User user) throws InvalidTokenException;
+
+    JwtAuthenticationResponse refresh(String refreshToken) throws InvalidTokenException;
+}
@@ -0,0 +1,142 @@
+package dev.bhargav.security.service;
+
+import dev.bhargav.security.entity.RefreshToken;
+import dev.bhargav.security.entity.User;
+import dev.bhargav.security.exception.InvalidTokenException;
+import dev.bhargav.security.model.JwtAuthenticationResponse;
+import dev.bhargav.security.repository.RefreshTokenRepository;
+import dev.bhargav.security.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Issues access tokens along with rotating refresh tokens. A refresh token is a random opaque string, it is looked up
+ * by its SHA-256 hash and can be used only once, so renewing an access token never runs the password hashing.
+ */
+@Service
+public class TokenServiceImpl implements TokenService {
+
+    private static final int REFRESH_TOKEN_BYTES = 32;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    @Autowired
+    JwtEncoder jwtEncoder;
+
+    @Autowired
+    RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    UserDetailsService userDetailsService;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Value("${jwt.access-token.expiry-seconds}")
+    private long accessTokenExpiry;
+
+    @Value("${jwt.refresh-token.expiry-seconds}")
+    private long refreshTokenExpiry;
+
+    @Override
+    @Transactional(value = "transactionManager")
+    public JwtAuthenticationResponse issueTokens(User user) throws InvalidTokenException {
+        // the principal may come from the user cache of a node which has not seen the user's deletion yet
+        if (!this.userRepository.existsByUsernameIgnoreCase(user.getUsername())) {
+            throw new InvalidTokenException("User does not exist");
+        }
+        return new JwtAuthenticationResponse(accessToken(user), refreshToken(user.getUsername()), this.accessTokenExpiry);
+    }
+
+    @Override
+    @Transactional(value = "transactionManager")
+    public JwtAuthenticationResponse refresh(String refreshToken) throws InvalidTokenException {
+        String tokenHash = hash(refreshToken);
+        RefreshToken existingToken = this.refreshTokenRepository.findByTokenHash(tokenHash);
+        // Deleting the row makes the token single use, a concurrent refresh with the same token deletes nothing
+        if (existingToken == null || this.refreshTokenRepository.deleteByTokenHash(tokenHash) == 0
+                || existingToken.getExpiresAt().before(new Date())) {
+            throw new InvalidTokenException("Refresh token is invalid or expired");
+        }
+        User user;
+        try {
+            user = (User) this.userDetailsService.loadUserByUsername(existingToken.getUsername());
+        } catch (UsernameNotFoundException e) {
+            throw new InvalidTokenException("Refresh token is invalid or expired");
+        }
+        return issueTokens(user);
+    }
+
+    /**
+     * Removes the expired refresh tokens.
+     */
+    @Scheduled(fixedDelayString = "${jwt.refresh-token.purge-interval-ms}")
+    @Transactional(value = "transactionManager")
+    public void purgeExpiredRefreshTokens() {
+        this.refreshTokenRepository.deleteExpired(new Date());
+    }
+
+    /**
+     * Builds JWT token for the given User.
+     *
+     * @param localUser - UserEntity which implements UserDetails
+     * @return token - String - JWT Token
+     */
+    private String accessToken(User localUser) {
+        Instant now = Instant.now();
+        String scope = localUser.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.joining(" "));
+        JwtClaimsSet claims = JwtClaimsSet.builder()
+                .issuer("self")
+                .issuedAt(now)
+                .expiresAt(now.plusSeconds(this.accessTokenExpiry))
+                .subject(localUser.getUsername())
+                .id(UUID.randomUUID().toString())
+                .claim("scope", scope)
+                .build();
+        return this.jwtEncoder.encode(JwtEncoderParameters.from(claims)).getTokenValue();
+    }
+
+    private String refreshToken(String username) {
+        byte[] randomBytes = new byte[REFRESH_TOKEN_BYTES];
+        this.secureRandom.nextBytes(randomBytes);
+        String refreshToken = Base64.getUrlEncoder().withoutPadding().encodeToString(randomBytes);
+        Date now = new Date();
+        this.refreshTokenRepository.save(RefreshToken.builder()
+                .tokenHash(hash(refreshToken))
+                .username(username)
+                .expiresAt(new Date(now.getTime() + this.refreshTokenExpiry * 1000L))
+                .createdDate(now)
+                .build());
+        return refreshToken;
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(messageDigest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package dev.bhargav.security.service;
 
-public interface UserDetailsService extends org.springframework.security.core.userdetails.UserDetailsService {
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+
+public interface UserDetailsService extends org.springframework.security.core.userdetails.UserDetailsService,
+        UserDetailsPasswordService {
 
 }
@@ -1,5 +1,6 @@
 package dev.bhargav.security.service;
 
+import dev.bhargav.security.cache.UserDetailsCache;
 import dev.bhargav.security.entity.User;
 import dev.bhargav.security.repository.UserRepository;
 import dev.bhargav.security.service.UserDetailsService;
@@ -7,6 +8,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
@@ -16,12 +18,36 @@ public class UserDetailsServiceImpl implements UserDetailsService {
     @Autowired
     UserRepository userRepository;
 
+    @Autowired
+    UserDetailsCache userDetailsCache;
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        Optional<User> user = Optional.ofNullable(userRepository.findByUsername(username));
+        Optional<User> user = Optional.ofNullable(this.userDetailsCache.get(username, userRepository::findByUsername));
         if (user.isEmpty()) {
             throw new UsernameNotFoundException(username);
         }
         return user.get();
     }
+
+    /**
+     * Stores the password re-encoded by the DaoAuthenticationProvider after a successful login, when the stored hash
+     * is of an older encoding or of a lower strength than the current PasswordEncoder.
+     *
+     * @param user        - UserDetails - Authenticated user
+     * @param newPassword - String - Password encoded with the current encoding
+     * @return User with the new password
+     */
+    @Override
+    @Transactional(value = "transactionManager")
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        User localUser = this.userRepository.findByUsername(user.getUsername());
+        if (localUser == null) {
+            return user;
+        }
+        localUser.setPassword(newPassword);
+        localUser = this.userRepository.save(localUser);
+        this.userDetailsCache.invalidateAfterCommit(localUser.getUsername());
+        return localUser;
+    }
 }
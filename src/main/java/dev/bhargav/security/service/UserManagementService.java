@@ -1,6 +1,7 @@
 package dev.bhargav.security.service;
 
 import dev.bhargav.security.exception.ResourceNotFoundException;
+import dev.bhargav.security.exception.TooManyRequestsException;
 import dev.bhargav.security.exception.UserAlreadyExistAuthenticationException;
 import dev.bhargav.security.model.SignUpRequest;
 import dev.bhargav.security.model.UserDto;
@@ -11,7 +12,7 @@ public interface UserManagementService {
 
     List<UserDto> getAllUsers();
 
-    UserDto registerNewUser(SignUpRequest signUpRequest) throws UserAlreadyExistAuthenticationException;
+    UserDto registerNewUser(SignUpRequest signUpRequest) throws UserAlreadyExistAuthenticationException, TooManyRequestsException;
 
     void deleteUser(String username) throws ResourceNotFoundException;
 }
@@ -1,18 +1,23 @@
 package dev.bhargav.security.service;
 
+import dev.bhargav.security.cache.UserDetailsCache;
+import dev.bhargav.security.cache.VerifiedCredentialCache;
+import dev.bhargav.security.config.PasswordHashingExecutor;
 import dev.bhargav.security.constant.AccountConstants;
 import dev.bhargav.security.deserializer.UserDetailsDeserializer;
 import dev.bhargav.security.entity.User;
 import dev.bhargav.security.exception.ResourceNotFoundException;
+import dev.bhargav.security.exception.TooManyRequestsException;
 import dev.bhargav.security.exception.UserAlreadyExistAuthenticationException;
 import dev.bhargav.security.model.SignUpRequest;
 import dev.bhargav.security.model.UserDto;
+import dev.bhargav.security.repository.RefreshTokenRepository;
 import dev.bhargav.security.repository.UserRepository;
 import dev.bhargav.security.service.UserManagementService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
 
@@ -22,26 +27,49 @@ public class UserManagementServiceImpl implements UserManagementService {
     @Autowired
     UserRepository userRepository;
 
+    @Autowired
+    RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    TokenRevocationService tokenRevocationService;
+
     @Autowired
     UserDetailsDeserializer userDetailsDeserializer;
 
     @Autowired
-    PasswordEncoder passwordEncoder;
+    PasswordHashingExecutor passwordHashingExecutor;
+
+    @Autowired
+    VerifiedCredentialCache verifiedCredentialCache;
+
+    @Autowired
+    UserDetailsCache userDetailsCache;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
 
     @Override
     public List<UserDto> getAllUsers() {
         return this.userDetailsDeserializer.deserializeAccount(this.userRepository.findAll());
     }
 
+    /**
+     * The password is hashed before the transaction starts, so that waiting for the hashing pool does not hold a
+     * database connection. The username check and the insert then run in one transaction.
+     */
     @Override
-    @Transactional(value = "transactionManager")
-    public UserDto registerNewUser(final SignUpRequest signUpRequest) throws UserAlreadyExistAuthenticationException {
+    public UserDto registerNewUser(final SignUpRequest signUpRequest) throws UserAlreadyExistAuthenticationException, TooManyRequestsException {
+        // checked before hashing as well, so that a taken username does not cost a hash
         if (this.userRepository.existsByUsernameIgnoreCase(signUpRequest.getUsername())) {
             throw new UserAlreadyExistAuthenticationException("Username '" + signUpRequest.getUsername() + "' already exists");
         }
-        User user = buildUser(signUpRequest);
-        user = this.userRepository.save(user);
-        this.userRepository.flush();
+        User newUser = buildUser(signUpRequest);
+        User user = this.transactionTemplate.execute(status ->
+                this.userRepository.existsByUsernameIgnoreCase(newUser.getUsername()) ? null : this.userRepository.save(newUser));
+        if (user == null) {
+            throw new UserAlreadyExistAuthenticationException("Username '" + signUpRequest.getUsername() + "' already exists");
+        }
+        this.userDetailsCache.invalidate(user.getUsername());
         return UserDto.builder().username(user.getUsername()).password(user.getPassword()).build();
     }
 
@@ -53,12 +81,16 @@ public class UserManagementServiceImpl implements UserManagementService {
         }
         this.userRepository.deleteByUsername(username);
         this.userRepository.flush();
+        this.refreshTokenRepository.deleteByUsername(username);
+        this.tokenRevocationService.revokeSubject(username);
+        this.verifiedCredentialCache.invalidateAfterCommit(username);
+        this.userDetailsCache.invalidateAfterCommit(username);
     }
 
-    private User buildUser(final SignUpRequest signUpRequest) {
+    private User buildUser(final SignUpRequest signUpRequest) throws TooManyRequestsException {
         return User.builder()
                 .username(signUpRequest.getUsername())
-                .password(this.passwordEncoder.encode(signUpRequest.getPassword()))
+                .password(this.passwordHashingExecutor.encode(signUpRequest.getPassword()))
                 .build();
     }
 }
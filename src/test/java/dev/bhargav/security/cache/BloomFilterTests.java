@@ -0,0 +1,56 @@
+package dev.bhargav.security.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTests {
+
+    private static final int INSERTIONS = 100_000;
+
+    private static final int PROBES = 100_000;
+
+    @Test
+    void hasNoFalseNegatives() {
+        BloomFilter bloomFilter = new BloomFilter(INSERTIONS, 0.01);
+        for (int i = 0; i < INSERTIONS; i++) {
+            bloomFilter.put("jti", "token-" + i);
+        }
+        for (int i = 0; i < INSERTIONS; i++) {
+            assertTrue(bloomFilter.mightContain("jti", "token-" + i), "token-" + i);
+        }
+    }
+
+    @Test
+    void keepsFalsePositivesNearTheConfiguredRate() {
+        for (double falsePositiveRate : new double[]{0.01, 0.001}) {
+            BloomFilter bloomFilter = new BloomFilter(INSERTIONS, falsePositiveRate);
+            for (int i = 0; i < INSERTIONS; i++) {
+                bloomFilter.put("jti", UUID.randomUUID().toString());
+            }
+            int falsePositives = 0;
+            for (int i = 0; i < PROBES; i++) {
+                if (bloomFilter.mightContain("jti", UUID.randomUUID().toString())) {
+                    falsePositives++;
+                }
+            }
+            double observedRate = (double) falsePositives / PROBES;
+            // sampling noise on 100 000 probes stays well within 1.5 times the target
+            assertTrue(observedRate < falsePositiveRate * 1.5,
+                    "false positive rate " + observedRate + " for a target of " + falsePositiveRate);
+        }
+    }
+
+    @Test
+    void separatesNamespaces() {
+        BloomFilter bloomFilter = new BloomFilter(1_000, 0.001);
+        bloomFilter.put("sub", "alice");
+        assertTrue(bloomFilter.mightContain("sub", "alice"));
+        assertFalse(bloomFilter.mightContain("jti", "alice"));
+        // the separator keeps the boundary between namespace and value
+        assertFalse(bloomFilter.mightContain("su", "balice"));
+    }
+}
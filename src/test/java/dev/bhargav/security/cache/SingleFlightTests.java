@@ -0,0 +1,107 @@
+package dev.bhargav.security.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTests {
+
+    private static final int CALLERS = 8;
+
+    @Test
+    void coalescesConcurrentCallersOfTheSameKey() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SingleFlight<String, String> singleFlight = new SingleFlight<>("test", meterRegistry);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(callers.submit(() -> singleFlight.execute("key", () -> {
+                    loads.incrementAndGet();
+                    assertTrue(release.await(5, TimeUnit.SECONDS));
+                    return "value";
+                })));
+            }
+            awaitWaiters(meterRegistry, CALLERS - 1);
+            release.countDown();
+            for (Future<String> result : results) {
+                assertEquals("value", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1.0, meterRegistry.get("single-flight.requests").tag("outcome", "loaded").counter().count());
+    }
+
+    @Test
+    void passesTheLoaderExceptionToEveryWaiter() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SingleFlight<String, String> singleFlight = new SingleFlight<>("test", meterRegistry);
+        IOException failure = new IOException("load failed");
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<Exception>> results = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(callers.submit(() -> assertThrows(Exception.class, () -> singleFlight.execute("key", () -> {
+                    assertTrue(release.await(5, TimeUnit.SECONDS));
+                    throw failure;
+                }))));
+            }
+            awaitWaiters(meterRegistry, CALLERS - 1);
+            release.countDown();
+            for (Future<Exception> result : results) {
+                assertSame(failure, result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void loadsAgainOnceTheLoadHasCompleted() throws Exception {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>("test", new SimpleMeterRegistry());
+        AtomicInteger loads = new AtomicInteger();
+        assertEquals(1, singleFlight.execute("key", loads::incrementAndGet));
+        assertEquals(2, singleFlight.execute("key", loads::incrementAndGet));
+        assertThrows(IllegalStateException.class, () -> singleFlight.execute("key", () -> {
+            throw new IllegalStateException("load failed");
+        }));
+        assertEquals(3, singleFlight.execute("key", loads::incrementAndGet));
+    }
+
+    @Test
+    void runsTheLoadsOfDifferentKeysSeparately() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>("test", new SimpleMeterRegistry());
+        // a load of another key started while 'first' is in flight runs on its own instead of waiting for it
+        assertEquals("second", singleFlight.execute("first", () -> singleFlight.execute("second", () -> "second")));
+    }
+
+    /**
+     * Waits until the given number of callers joined the load in flight.
+     */
+    private static void awaitWaiters(SimpleMeterRegistry meterRegistry, int waiters) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("single-flight.requests").tag("outcome", "coalesced").counter().count() < waiters) {
+            assertTrue(System.nanoTime() < deadline, "callers did not coalesce");
+            Thread.sleep(10);
+        }
+    }
+}
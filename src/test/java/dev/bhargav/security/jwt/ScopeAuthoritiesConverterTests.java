@@ -0,0 +1,89 @@
+package dev.bhargav.security.jwt;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScopeAuthoritiesConverterTests {
+
+    @Test
+    void mapsAScopeStringToPrefixedAuthorities() {
+        AbstractAuthenticationToken authentication = new ScopeAuthoritiesConverter(16).convert(jwt("ROLE_USER  ROLE_ADMIN"));
+
+        assertInstanceOf(JwtAuthenticationToken.class, authentication);
+        assertEquals("alice", authentication.getName());
+        assertEquals(Set.of(new SimpleGrantedAuthority("SCOPE_ROLE_USER"), new SimpleGrantedAuthority("SCOPE_ROLE_ADMIN")),
+                Set.copyOf(authentication.getAuthorities()));
+    }
+
+    @Test
+    void mapsAScopeListToPrefixedAuthorities() {
+        AbstractAuthenticationToken authentication = new ScopeAuthoritiesConverter(16).convert(jwt(List.of("read", "write")));
+
+        assertEquals(Set.of(new SimpleGrantedAuthority("SCOPE_read"), new SimpleGrantedAuthority("SCOPE_write")),
+                Set.copyOf(authentication.getAuthorities()));
+    }
+
+    @Test
+    void grantsNothingWithoutAScope() {
+        assertTrue(new ScopeAuthoritiesConverter(16).convert(jwt(null)).getAuthorities().isEmpty());
+        assertTrue(new ScopeAuthoritiesConverter(16).convert(jwt("")).getAuthorities().isEmpty());
+    }
+
+    @Test
+    void grantsTheSameAuthoritiesAsTheDefaultConverter() {
+        Jwt jwt = jwt("ROLE_USER ROLE_ADMIN");
+        assertEquals(Set.copyOf(new JwtAuthenticationConverter().convert(jwt).getAuthorities()),
+                Set.copyOf(new ScopeAuthoritiesConverter(16).convert(jwt).getAuthorities()));
+    }
+
+    @Test
+    void internsTheAuthoritiesOfAScopeString() {
+        ScopeAuthoritiesConverter converter = new ScopeAuthoritiesConverter(16);
+        assertSame(authority(converter, "ROLE_USER"), authority(converter, "ROLE_USER"));
+    }
+
+    @Test
+    void stopsInterningBeyondTheMaximumSize() {
+        ScopeAuthoritiesConverter converter = new ScopeAuthoritiesConverter(1);
+        assertSame(authority(converter, "ROLE_USER"), authority(converter, "ROLE_USER"));
+
+        GrantedAuthority first = authority(converter, "ROLE_ADMIN");
+        GrantedAuthority second = authority(converter, "ROLE_ADMIN");
+        assertEquals(first, second);
+        assertNotSame(first, second);
+    }
+
+    /**
+     * The token copies the authority set, the interned instances are the authorities themselves.
+     */
+    private static GrantedAuthority authority(ScopeAuthoritiesConverter converter, String scope) {
+        return converter.convert(jwt(scope)).getAuthorities().iterator().next();
+    }
+
+    private static Jwt jwt(Object scope) {
+        Jwt.Builder jwt = Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .subject("alice")
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(60));
+        if (scope != null) {
+            jwt.claim("scope", scope);
+        }
+        return jwt.build();
+    }
+}
@@ -0,0 +1,117 @@
+package dev.bhargav.security.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTests {
+
+    private static final String TOKEN = RateLimiter.TOKEN_PATH;
+
+    private static final String SIGNUP = RateLimiter.SIGNUP_PATH;
+
+    /**
+     * Hand-driven nanoTime, started away from 0 like System.nanoTime().
+     */
+    private final AtomicLong now = new AtomicLong(TimeUnit.DAYS.toNanos(1));
+
+    @Test
+    void allowsABurstOfCapacityThenRejects() {
+        // one token every 10 seconds
+        RateLimiter rateLimiter = rateLimiter(3, 0.1);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0L, rateLimiter.tryAcquire(TOKEN, "ip:10.0.0.1"));
+        }
+        assertEquals(10L, rateLimiter.tryAcquire(TOKEN, "ip:10.0.0.1"));
+    }
+
+    @Test
+    void refillsOneTokenPerInterval() {
+        // one token every 100 ms
+        RateLimiter rateLimiter = rateLimiter(2, 10);
+        assertEquals(0L, rateLimiter.tryAcquire(TOKEN, "ip:10.0.0.1"));
+        assertEquals(0L, rateLimiter.tryAcquire(TOKEN, "ip:10.0.0.1"));
+        assertEquals(1L, rateLimiter.tryAcquire(TOKEN, "ip:10.0.0.1"));
+
+        advanceMillis(99);
+        assertEquals(1L, rateLimiter.tryAcquire(TOKEN, "ip:10.0.0.1"));
+        advanceMillis(1);
+        assertEquals(0L, rateLimiter.tryAcquire(TOKEN, "ip:10.0.0.1"));
+        assertEquals(1L, rateLimiter.tryAcquire(TOKEN, "ip:10.0.0.1"));
+
+        advanceMillis(200);
+        assertEquals(0L, rateLimiter.tryAcquire(TOKEN, "ip:10.0.0.1"));
+        assertEquals(0L, rateLimiter.tryAcquire(TOKEN, "ip:10.0.0.1"));
+        assertEquals(1L, rateLimiter.tryAcquire(TOKEN, "ip:10.0.0.1"));
+    }
+
+    @Test
+    void refillStopsAtCapacity() {
+        RateLimiter rateLimiter = rateLimiter(2, 10);
+        // idle for 50 intervals, the bucket holds no more than its capacity
+        advanceMillis(5000);
+        assertEquals(0L, rateLimiter.tryAcquire(TOKEN, "ip:10.0.0.1"));
+        assertEquals(0L, rateLimiter.tryAcquire(TOKEN, "ip:10.0.0.1"));
+        assertEquals(1L, rateLimiter.tryAcquire(TOKEN, "ip:10.0.0.1"));
+    }
+
+    @Test
+    void keepsSeparateBucketsPerClientAndPath() {
+        RateLimiter rateLimiter = rateLimiter(1, 0.1);
+        assertEquals(0L, rateLimiter.tryAcquire(TOKEN, "ip:10.0.0.1"));
+        assertTrue(rateLimiter.tryAcquire(TOKEN, "ip:10.0.0.1") > 0L);
+
+        assertEquals(0L, rateLimiter.tryAcquire(TOKEN, "ip:10.0.0.2"));
+        assertEquals(0L, rateLimiter.tryAcquire(SIGNUP, "ip:10.0.0.1"));
+    }
+
+    @Test
+    void rejectsWhenAnyKeyIsEmpty() {
+        RateLimiter rateLimiter = rateLimiter(1, 0.1);
+        assertEquals(0L, rateLimiter.tryAcquire(TOKEN, "user:alice"));
+
+        assertTrue(rateLimiter.tryAcquire(TOKEN, "ip:10.0.0.1", "user:alice") > 0L);
+        // the address bucket was drained by the rejected request as well
+        assertTrue(rateLimiter.tryAcquire(TOKEN, "ip:10.0.0.1", "user:bob") > 0L);
+    }
+
+    @Test
+    void evictsOnlyBucketsWhichAreFullAgain() {
+        RateLimiter rateLimiter = rateLimiter(1, 10);
+        assertEquals(0L, rateLimiter.tryAcquire(TOKEN, "ip:10.0.0.1"));
+        advanceMillis(50);
+        rateLimiter.evictIdleBuckets();
+        // still half way through its refill, the bucket was kept
+        assertEquals(1L, rateLimiter.tryAcquire(TOKEN, "ip:10.0.0.1"));
+
+        advanceMillis(51);
+        rateLimiter.evictIdleBuckets();
+        assertEquals(0L, rateLimiter.tryAcquire(TOKEN, "ip:10.0.0.1"));
+    }
+
+    @Test
+    void limitsOnlyTheAuthenticationPaths() {
+        RateLimiter rateLimiter = rateLimiter(1, 1);
+        assertTrue(rateLimiter.isLimited(TOKEN));
+        assertTrue(rateLimiter.isLimited(SIGNUP));
+        assertFalse(rateLimiter.isLimited("/api/account"));
+    }
+
+    /**
+     * Rate limiter with the given limit on both paths, reading the time from 'now'.
+     */
+    private RateLimiter rateLimiter(long capacity, double refillPerSecond) {
+        return new RateLimiter(capacity, refillPerSecond, capacity, refillPerSecond, new SimpleMeterRegistry(),
+                this.now::get);
+    }
+
+    private void advanceMillis(long millis) {
+        this.now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
@@ -0,0 +1,129 @@
+package dev.bhargav.security.service;
+
+import dev.bhargav.security.repository.AccountNumberSequenceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AccountNumberAllocatorTests {
+
+    private AccountNumberSequenceRepository accountNumberSequenceRepository;
+
+    @BeforeEach
+    void setUp() {
+        this.accountNumberSequenceRepository = mock(AccountNumberSequenceRepository.class);
+    }
+
+    @Test
+    void computesTheLuhnCheckDigit() {
+        assertEquals(3, AccountNumberAllocator.luhnCheckDigit(7992739871L));
+        assertEquals(9, AccountNumberAllocator.luhnCheckDigit(100000L));
+        assertEquals(0, AccountNumberAllocator.luhnCheckDigit(0L));
+    }
+
+    @Test
+    void appendsAValidCheckDigit() {
+        when(this.accountNumberSequenceRepository.findNextBlockForUpdate(anyString())).thenReturn(0L);
+        AccountNumberAllocator allocator = allocator(8, true, 1000);
+
+        for (int i = 0; i < 1000; i++) {
+            int accNo = allocator.allocate();
+            assertEquals(9, String.valueOf(accNo).length());
+            assertTrue(isLuhnValid(accNo), "invalid check digit of " + accNo);
+        }
+    }
+
+    @Test
+    void handsOutTheNumbersOfABlockThenReservesTheNext() {
+        when(this.accountNumberSequenceRepository.findNextBlockForUpdate(anyString())).thenReturn(0L, 1L);
+        AccountNumberAllocator allocator = allocator(6, false, 3);
+
+        assertEquals(100000, allocator.allocate());
+        assertEquals(100001, allocator.allocate());
+        assertEquals(100002, allocator.allocate());
+        verify(this.accountNumberSequenceRepository).updateNextBlock("account", 1L);
+
+        assertEquals(100003, allocator.allocate());
+        verify(this.accountNumberSequenceRepository).updateNextBlock("account", 2L);
+    }
+
+    @Test
+    void createsTheSequenceOnFirstUse() {
+        when(this.accountNumberSequenceRepository.findNextBlockForUpdate(anyString())).thenReturn(null, 0L);
+        AccountNumberAllocator allocator = allocator(6, false, 10);
+
+        assertEquals(100000, allocator.allocate());
+        verify(this.accountNumberSequenceRepository).insertIfAbsent("account");
+    }
+
+    @Test
+    void neverHandsOutTheSameNumberTwice() {
+        when(this.accountNumberSequenceRepository.findNextBlockForUpdate(anyString())).thenReturn(0L, 1L, 2L, 3L);
+        AccountNumberAllocator allocator = allocator(6, true, 7);
+
+        Set<Integer> accNos = new HashSet<>();
+        for (int i = 0; i < 28; i++) {
+            assertTrue(accNos.add(allocator.allocate()));
+        }
+    }
+
+    @Test
+    void failsOnceTheNumbersOfTheWidthAreExhausted() {
+        // block 2 of 400 000 numbers starts at 900000 and is cut at 999999, the last number of 6 digits
+        when(this.accountNumberSequenceRepository.findNextBlockForUpdate(anyString())).thenReturn(2L, 3L);
+        AccountNumberAllocator allocator = allocator(6, false, 400_000);
+
+        assertEquals(900000, allocator.allocate());
+        for (int i = 900001; i <= 999999; i++) {
+            allocator.allocate();
+        }
+        assertThrows(IllegalStateException.class, allocator::allocate);
+    }
+
+    @Test
+    void validatesTheWidth() {
+        assertThrows(IllegalStateException.class, () -> allocator(5, false, 100));
+        assertThrows(IllegalStateException.class, () -> allocator(9, true, 100));
+        assertThrows(IllegalStateException.class, () -> allocator(10, false, 100));
+        assertDoesNotThrow(() -> allocator(8, true, 100));
+        assertDoesNotThrow(() -> allocator(9, false, 100));
+    }
+
+    private AccountNumberAllocator allocator(int width, boolean checkDigit, long blockSize) {
+        AccountNumberAllocator allocator = new AccountNumberAllocator();
+        allocator.accountNumberSequenceRepository = this.accountNumberSequenceRepository;
+        allocator.transactionManager = mock(PlatformTransactionManager.class);
+        ReflectionTestUtils.setField(allocator, "width", width);
+        ReflectionTestUtils.setField(allocator, "checkDigit", checkDigit);
+        ReflectionTestUtils.setField(allocator, "blockSize", blockSize);
+        allocator.afterPropertiesSet();
+        return allocator;
+    }
+
+    private static boolean isLuhnValid(long number) {
+        int sum = 0;
+        boolean doubled = false;
+        for (long rest = number; rest > 0; rest /= 10) {
+            int digit = (int) (rest % 10);
+            if (doubled) {
+                digit = digit * 2 > 9 ? digit * 2 - 9 : digit * 2;
+            }
+            sum += digit;
+            doubled = !doubled;
+        }
+        return sum % 10 == 0;
+    }
+}